@@ -0,0 +1,57 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Runs the JMH benchmarks, HotPaths and TimeToConvergence, on
+ * planted motif data sets of the sizes asked for.  Every benchmark gets a
+ * forked JVM of its own; the GC profiler adds the bytes allocated per
+ * operation and the collections.  Results are written as JMH JSON to compare
+ * versions.
+ * Run with: ant bench -Dbench.args="-n 100,1000 -length 500 -l 12 -o out.json"
+ */
+package gibbs_sampler;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class Benchmarks {
+
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .resultFormat(ResultFormatType.JSON)
+                .result("bench-results.json")
+                .addProfiler(GCProfiler.class);
+        String include = "gibbs_sampler\\.(HotPaths|TimeToConvergence)\\.";
+        for(int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch(args[i]) {
+                case "-n": options.param("n", list(value)); break;
+                case "-length": options.param("length", list(value)); break;
+                case "-l": options.param("l", list(value)); break;
+                case "-forks": options.forks(Integer.parseInt(value)); break;
+                case "-warmup": options.warmupIterations(Integer.parseInt(value)); break;
+                case "-measure": options.measurementIterations(Integer.parseInt(value)); break;
+                case "-include": include = value; break; // a regex of benchmark names
+                case "-o": options.result(value); break;
+                default: throw new IllegalArgumentException("Unknown flag " + args[i]);
+            }
+        }
+        new Runner(options.include(include).build()).run();
+    }
+
+    /**
+     * @param list comma separated values
+     * @return the values
+     */
+    private static String[] list(String list) {
+        String[] parts = list.split(",");
+        for(int i = 0; i < parts.length; i++) {
+            parts[i] = parts[i].trim();
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: JMH benchmarks of the sampler hot paths on a planted motif data
+ * set, one method per path.  JMH runs every method in a JVM of its own, so
+ * the compiler sees one operation per run and the paths do not skew each
+ * other.  Sequences are visited in one random order, the same for every path.
+ */
+package gibbs_sampler;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPaths {
+
+    @Param({"100", "1000"})
+    int n; // sequences
+
+    @Param({"500"})
+    int length; // letters per sequence
+
+    @Param({"12"})
+    int l; // motif length
+
+    private SequenceStore S;
+    private Chain chain;
+    private int[] Z;
+    private Profile profile;
+    private double[] pwm;
+    private double[] scores;
+    private int words; // windows of sequence 0
+    private int[] seqs = new int[1 << 12]; // random sequence order
+    private int next;
+    private Rng rng;
+    private final WeightedSampler sampler = new WeightedSampler();
+    private final ScoreKernel scalar = ScoreKernel.scalar();
+    private final ScoreKernel chosen = ScoreKernel.create();
+
+    @Setup
+    public void setup() {
+        S = new PlantedMotif(n, length, l, 0.1, 1).S;
+        chain = new Chain(S, l, new Rng(2));
+        Z = chain.Z();
+        profile = new Profile(S, Z, l);
+        pwm = profile.logOdds();
+        rng = new Rng(3);
+        for(int i = 0; i < seqs.length; i++) {
+            seqs[i] = rng.nextInt(n);
+        }
+        scores = new double[length];
+        words = scalar.scoreWindows(S.codes(), S.offset(0), S.length(0), pwm, l, scores);
+        agree();
+    }
+
+    /**
+     * Fails the run when the chosen backend scores any window of S apart
+     * from the scalar one
+     */
+    private void agree() {
+        double[] expected = new double[length];
+        double[] actual = new double[length];
+        for(int seq = 0; seq < S.size(); seq++) {
+            int windows = scalar.scoreWindows(S.codes(), S.offset(seq), S.length(seq), pwm, l, expected);
+            chosen.scoreWindows(S.codes(), S.offset(seq), S.length(seq), pwm, l, actual);
+            for(int i = 0; i < windows; i++) {
+                if(Math.abs(expected[i] - actual[i]) > 1e-9) {
+                    throw new IllegalStateException("Backend " + ScoreKernel.backend() + " disagrees with scalar by "
+                            + Math.abs(expected[i] - actual[i]));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the next sequence of the random order
+     */
+    private int nextSeq() {
+        return seqs[next++ & (seqs.length - 1)];
+    }
+
+    /** What getTheta and getThetaZero did: one motif out, one back in */
+    @Benchmark
+    public double profileUpdate() {
+        int seq = nextSeq();
+        profile.withdraw(seq, Z[seq]);
+        double out = profile.logOdds()[0];
+        profile.place(seq, Z[seq]);
+        return out + profile.logOdds()[0];
+    }
+
+    /** prScore over every word of a sequence, the scalar kernel */
+    @Benchmark
+    public int scoreWindowsScalar() {
+        int seq = nextSeq();
+        return scalar.scoreWindows(S.codes(), S.offset(seq), S.length(seq), pwm, l, scores);
+    }
+
+    /** prScore over every word of a sequence, the backend chosen at startup */
+    @Benchmark
+    public int scoreWindows() {
+        int seq = nextSeq();
+        return chosen.scoreWindows(S.codes(), S.offset(seq), S.length(seq), pwm, l, scores);
+    }
+
+    /** getRandWordInd over the words of one sequence */
+    @Benchmark
+    public int sampleWord() {
+        sampler.load(scores, words);
+        return sampler.draw(rng.nextDouble());
+    }
+
+    @Benchmark
+    public double logScoreSumS() {
+        return chain.logScoreSumS();
+    }
+
+    /** One pass of the main loop */
+    @Benchmark
+    public double iteration() {
+        chain.step();
+        return chain.score();
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Makes synthetic data sets for the benchmarks: n random sequences
+ * of the same length, each with one copy of a random motif planted at a random
+ * position, every letter of the copy mutated with a small probability.
+ */
+package gibbs_sampler;
+
+public class PlantedMotif {
+
+    protected final SequenceStore S;
+    protected final String motif; // the planted motif, upper case
+    protected final int[] planted; // where the copy sits in each sequence
+
+    /**
+     * @param n the number of sequences
+     * @param length the length of every sequence
+     * @param l the motif length
+     * @param mutation the probability of each motif letter to be changed
+     * @param seed the seed, the same seed gives the same data set
+     */
+    public PlantedMotif(int n, int length, int l, double mutation, long seed) {
+        Rng rng = new Rng(seed);
+        byte[] motif = new byte[l];
+        char[] letters = new char[l];
+        for(int j = 0; j < l; j++) {
+            motif[j] = (byte)rng.nextInt(4);
+            letters[j] = Character.toUpperCase(SequenceStore.decode(motif[j]));
+        }
+        this.motif = new String(letters);
+        this.planted = new int[n];
+        SequenceStore.Builder S = new SequenceStore.Builder(n * length);
+        for(int i = 0; i < n; i++) {
+            planted[i] = rng.nextInt(length - l + 1);
+            for(int k = 0; k < length; k++) {
+                int j = k - planted[i];
+                if(j >= 0 && j < l && rng.nextDouble() >= mutation) {
+                    S.append(motif[j]);
+                } else {
+                    S.append((byte)rng.nextInt(4));
+                }
+            }
+            S.endSequence();
+        }
+        this.S = S.build();
+    }
+
+    /**
+     * Counts the letters in which a consensus differs from the planted motif
+     * @param consensus the consensus found
+     * @return the hamming distance
+     */
+    public int distance(String consensus) {
+        int d = 0;
+        for(int j = 0; j < motif.length(); j++) {
+            if(Character.toUpperCase(consensus.charAt(j)) != motif.charAt(j)) {
+                d++;
+            }
+        }
+        return d;
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: JMH benchmark of whole runs on a planted motif data set, from a
+ * random start until twenty sweeps bring no better log score.  Every run has
+ * a seed of its own.  Next to the time, the runs whose consensus is within one
+ * letter of the planted motif and the motifs placed on their planted copy are
+ * counted, so a fast run that found nothing shows up as such.
+ */
+package gibbs_sampler;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TimeToConvergence {
+
+    private static final int STALL = 20; // sweeps without a better score
+    private static final int MAX_SWEEPS = 1000; // in case a run never settles
+
+    @Param({"100", "1000"})
+    int n; // sequences
+
+    @Param({"500"})
+    int length; // letters per sequence
+
+    @Param({"12"})
+    int l; // motif length
+
+    private PlantedMotif data;
+    private long seed;
+
+    /**
+     * What the runs found, reported by JMH next to the time
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Found {
+        public long plantedFound; // runs within one letter of the planted motif
+        public long sitesFound; // motifs on their planted copy, n per run at best
+        public long sweeps; // sweeps until the run stopped
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            plantedFound = 0;
+            sitesFound = 0;
+            sweeps = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        data = new PlantedMotif(n, length, l, 0.1, 1);
+    }
+
+    @Benchmark
+    public GibbsSampler.Result run(Found found) {
+        GibbsSampler.Result result = new GibbsSampler(new GibbsSampler.Config().motifLength(l).seed(seed++)
+                .convergence(new Convergence().stall(STALL).maxSweeps(MAX_SWEEPS))).run(data.S);
+        if(data.distance(result.consensus()) <= 1) {
+            found.plantedFound++;
+        }
+        int[] Z = result.best().Z();
+        for(int i = 0; i < Z.length; i++) {
+            if(Z[i] == data.planted[i]) {
+                found.sitesFound++;
+            }
+        }
+        found.sweeps += (long)result.best().sweeps();
+        return result;
+    }
+}
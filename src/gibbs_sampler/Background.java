@@ -0,0 +1,186 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: A fixed theta zero.  By default theta zero is the letters
+ * outside the motifs, so it moves with the alignment and differs with l; a
+ * Background is counted once over all of S and shared read only by every
+ * chain, which makes scores for different motif lengths use one model.
+ * Of order k above 0 it is a Markov chain: each letter depends on the k
+ * before it, so repeats and GC rich stretches that are likely anyway in S
+ * stop looking like motifs.  The log likelihood of every letter of S is then
+ * summed up front, one running total over the store, so the background of
+ * any window is the difference of two totals.
+ */
+package gibbs_sampler;
+
+public class Background {
+
+    protected static final int MAX_ORDER = 8; // 4^9 conditional probabilities
+
+    private final double[] frequency = new double[4]; // [code] of a, t, c and g
+    private final int order;
+    private final double[][] logp; // [m][context * 4 + code] log Pr(code | m letters before)
+    private final double[] cumulative; // [k] log likelihood of codes before k, order above 0
+
+    /**
+     * @param frequency the probability of each code, a, t, c and g order
+     */
+    public Background(double[] frequency) {
+        double sum = 0;
+        for(int b = 0; b < 4; b++) {
+            if(!(frequency[b] > 0)) {
+                throw new IllegalArgumentException("Every nucleotide needs a background frequency above 0");
+            }
+            sum += frequency[b];
+        }
+        for(int b = 0; b < 4; b++) {
+            this.frequency[b] = frequency[b] / sum;
+        }
+        this.order = 0;
+        this.logp = null;
+        this.cumulative = null;
+    }
+
+    /**
+     * Estimates a Markov background of S and sums it over S
+     * @param S the set of sequences
+     * @param order the letters each letter depends on, above 0
+     */
+    private Background(SequenceStore S, int order) {
+        this.order = order;
+        this.logp = new double[order + 1][];
+        byte[] codes = S.codes();
+        long[][] counts = new long[order + 1][];
+        for(int m = 0; m <= order; m++) {
+            counts[m] = new long[4 << (2 * m)];
+        }
+        for(int i = 0; i < S.size(); i++) { // every order at once, letters after an N start over
+            int context = 0;
+            int run = 0;
+            for(int k = S.offset(i); k < S.offset(i) + S.length(i); k++) {
+                if(codes[k] == SequenceStore.N) {
+                    run = 0;
+                    continue;
+                }
+                for(int m = 0; m <= Math.min(run, order); m++) {
+                    int before = context & ((1 << (2 * m)) - 1);
+                    counts[m][(before << 2) | codes[k]]++;
+                }
+                context = ((context << 2) | codes[k]) & ((1 << (2 * order)) - 1);
+                run++;
+            }
+        }
+        for(int m = 0; m <= order; m++) {
+            logp[m] = new double[counts[m].length];
+            for(int c = 0; c < counts[m].length; c += 4) {
+                double total = 4; // one pseudocount per letter
+                for(int b = 0; b < 4; b++) {
+                    total += counts[m][c + b];
+                }
+                for(int b = 0; b < 4; b++) {
+                    logp[m][c + b] = Math.log((counts[m][c + b] + 1) / total);
+                }
+            }
+        }
+        for(int b = 0; b < 4; b++) {
+            frequency[b] = Math.exp(logp[0][b]);
+        }
+        this.cumulative = new double[S.totalLength() + 1];
+        for(int i = 0; i < S.size(); i++) {
+            int context = 0;
+            int run = 0;
+            for(int k = S.offset(i); k < S.offset(i) + S.length(i); k++) {
+                double log = 0; // an N is never in a window, it adds nothing
+                if(codes[k] != SequenceStore.N) {
+                    int m = Math.min(run, order); // fewer letters before it at the start
+                    log = logp[m][((context & ((1 << (2 * m)) - 1)) << 2) | codes[k]];
+                    context = ((context << 2) | codes[k]) & ((1 << (2 * order)) - 1);
+                    run++;
+                } else {
+                    run = 0;
+                }
+                cumulative[k + 1] = cumulative[k] + log;
+            }
+        }
+    }
+
+    /**
+     * Counts the letters of every sequence.  N is left out, a letter missing
+     * from S gets one count so no window is impossible
+     * @param S the set of sequences
+     * @return the background of S
+     */
+    public static Background of(SequenceStore S) {
+        long[] counts = new long[5];
+        byte[] codes = S.codes();
+        for(int k = 0; k < S.totalLength(); k++) {
+            counts[codes[k]]++;
+        }
+        double[] frequency = new double[4];
+        for(int b = 0; b < 4; b++) {
+            frequency[b] = Math.max(counts[b], 1);
+        }
+        return new Background(frequency);
+    }
+
+    /**
+     * A background of S of any order, see the constructors
+     * @param S the set of sequences
+     * @param order the letters each letter depends on, 0 for plain frequencies
+     * @return the background of S
+     */
+    public static Background of(SequenceStore S, int order) {
+        if(order < 0 || order > MAX_ORDER) {
+            throw new IllegalArgumentException("Background order must be between 0 and " + MAX_ORDER);
+        }
+        return order == 0 ? of(S) : new Background(S, order);
+    }
+
+    /**
+     * @param code the nucleotide code, not N
+     * @return the probability of the code, over all contexts
+     */
+    public double frequency(int code) {
+        return frequency[code];
+    }
+
+    /**
+     * @return the letters each letter depends on
+     */
+    public int order() {
+        return order;
+    }
+
+    /**
+     * @return true when windows have their own background, see window
+     */
+    public boolean markov() {
+        return order > 0;
+    }
+
+    /**
+     * Log likelihood of a window under a Markov background, two lookups.
+     * Only for the store the background was made from
+     * @param at where the window starts in the codes of the store
+     * @param l the window length
+     * @return the natural log of Pr(window | background)
+     */
+    public double window(int at, int l) {
+        return cumulative[at + l] - cumulative[at];
+    }
+
+    /**
+     * Takes the background of every window off window scores
+     * @param from where the first window starts in the codes of the store
+     * @param n the number of windows
+     * @param l the window length
+     * @param scores the scores of the windows from first
+     * @param first where the score of the window at from is
+     */
+    public void subtract(int from, int n, int l, double[] scores, int first) {
+        for(int i = 0; i < n; i++) {
+            scores[first + i] -= cumulative[from + i + l] - cumulative[from + i];
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Runs one sampler job per dataset in one JVM.  The datasets are
+ * the files of a directory or the lines of a manifest, a path per line with
+ * an optional motif length after a tab.  Reading inputs and writing results
+ * is done on virtual threads where the JVM has them (JDK 21 on), else on
+ * plain threads; sampling runs on one fork-join pool with a thread per core,
+ * so however many jobs wait on I/O the cores are never oversubscribed.  Only
+ * a few jobs per core are in flight at once so loaded datasets do not pile
+ * up in memory.  Each job writes its motifs to a file of its own as soon as
+ * it is done, and a line to summary.tsv; a job that fails is recorded there
+ * and the others go on.  Metric reports of every job share one progress
+ * stream, each line naming its job.
+ */
+package gibbs_sampler;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchRunner {
+
+    private static final int IN_FLIGHT_PER_THREAD = 4; // loaded jobs per sampling thread
+
+    private final GibbsSampler.Config config;
+    private final Path outDir;
+    private final int threads;
+
+    /**
+     * @param config the run parameters of every job, the output is ignored
+     * @param outDir where the results and the summary go
+     * @param threads sampling threads, 0 for one per core
+     */
+    public BatchRunner(GibbsSampler.Config config, Path outDir, int threads) {
+        this.config = config.copy().output(null);
+        this.outDir = outDir;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * One dataset to run
+     */
+    static class Job {
+        final String name; // file name of the results, unique in the batch
+        final Path input;
+        final int l; // motif length, 0 for the one of the config
+
+        Job(String name, Path input, int l) {
+            this.name = name;
+            this.input = input;
+            this.l = l;
+        }
+    }
+
+    /**
+     * Lists the jobs of a directory, every regular file in name order, or of
+     * a manifest file
+     * @param source the directory or manifest
+     * @return the jobs
+     * @throws IOException when the source cannot be read
+     */
+    public static List<Job> jobs(Path source) throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        if(Files.isDirectory(source)) {
+            try(DirectoryStream<Path> dir = Files.newDirectoryStream(source)) {
+                for(Path p : dir) {
+                    if(Files.isRegularFile(p) && !p.getFileName().toString().startsWith(".")) {
+                        inputs.add(p);
+                    }
+                }
+            }
+            inputs.sort(null);
+            for(int k = 0; k < inputs.size(); k++) {
+                lengths.add(0);
+            }
+        } else {
+            Path base = source.toAbsolutePath().getParent();
+            for(String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                inputs.add(base.resolve(fields[0].trim()));
+                lengths.add(fields.length > 1 ? Integer.parseInt(fields[1].trim()) : 0);
+            }
+        }
+        List<Job> jobs = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for(int k = 0; k < inputs.size(); k++) {
+            String name = inputs.get(k).getFileName().toString().replaceFirst("\\.gz$", "")
+                    .replaceFirst("\\.[^.]*$", ""); // reads.fa.gz is reads
+            String unique = name;
+            for(int n = 2; !names.add(unique); n++) { // same file name in two places
+                unique = name + "-" + n;
+            }
+            jobs.add(new Job(unique, inputs.get(k), lengths.get(k)));
+        }
+        return jobs;
+    }
+
+    /**
+     * Runs every job and waits for all of them
+     * @param jobs the datasets
+     * @return the number of jobs that failed
+     * @throws IOException when the output directory or summary cannot be written
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public int run(List<Job> jobs) throws IOException, InterruptedException {
+        Files.createDirectories(outDir);
+        ForkJoinPool cpu = new ForkJoinPool(threads);
+        ExecutorService io = ioExecutor();
+        Semaphore inFlight = new Semaphore(threads * IN_FLIGHT_PER_THREAD);
+        AtomicInteger failed = new AtomicInteger();
+        try(PrintWriter summary = new PrintWriter(Files.newBufferedWriter(outDir.resolve("summary.tsv"),
+                StandardCharsets.UTF_8))) {
+            summary.println("job\tinput\tstatus\tseconds\tl\titerations\tscore\tconsensus\terror");
+            summary.flush();
+            for(Job job : jobs) {
+                inFlight.acquire();
+                io.execute(() -> {
+                    try {
+                        String line = runJob(job, cpu, failed);
+                        synchronized(summary) {
+                            summary.println(line);
+                            summary.flush();
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            io.shutdown();
+            io.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } finally {
+            io.shutdownNow();
+            cpu.shutdown();
+        }
+        return failed.get();
+    }
+
+    /**
+     * Loads, samples and writes one dataset
+     * @param job the dataset
+     * @param cpu the pool the chains run on
+     * @param failed counts the jobs that failed
+     * @return the summary line of the job
+     */
+    private String runJob(Job job, ForkJoinPool cpu, AtomicInteger failed) {
+        long started = System.nanoTime();
+        int l = job.l > 0 ? job.l : config.l;
+        try {
+            SequenceStore S = GibbsSampler.load(job.input.toString());
+            GibbsSampler.Config own = config.copy().motifLength(l).job(job.name); // named in the progress lines
+            if(config.checkpointDir != null) { // every job saved apart
+                own.checkpoints(config.checkpointDir.resolve(job.name), config.checkpointEvery);
+            }
+            GibbsSampler.Result result = new GibbsSampler(own).run(S, cpu);
+            Path out = outDir.resolve(job.name + ".motifs");
+            Path tmp = outDir.resolve(job.name + ".motifs.tmp");
+            try(PrintWriter w = new PrintWriter(Files.newBufferedWriter(tmp, StandardCharsets.UTF_8))) {
+                Gibbs.writeMotifToFile(result.best(), w);
+            }
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING); // never a half written result
+            return String.format(Locale.ROOT, "%s\t%s\tok\t%.3f\t%d\t%d\t%.4f\t%s\t", job.name, job.input,
+                    (System.nanoTime() - started) / 1e9, l, result.iterations(), result.score(), result.consensus());
+        } catch(IOException | RuntimeException ex) { // a bad dataset fails its job only
+            failed.incrementAndGet();
+            String error = String.valueOf(ex.getMessage()).replace('\t', ' ').replace('\n', ' ');
+            return String.format(Locale.ROOT, "%s\t%s\tfailed\t%.3f\t%d\t\t\t\t%s: %s", job.name, job.input,
+                    (System.nanoTime() - started) / 1e9, l, ex.getClass().getSimpleName(), error);
+        }
+    }
+
+    /**
+     * A virtual thread per task where the JVM has them, else a plain thread
+     * per task.  Looked up by name so the code builds on JDK 17
+     * @return the executor for the I/O side of the jobs
+     */
+    private static ExecutorService ioExecutor() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch(ReflectiveOperationException ex) { // before JDK 21
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "batch-io");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
@@ -0,0 +1,644 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: One run of the Gibbs Sampler (figure 10.9) with all of its
+ * state: motif starts, profile counts, random numbers and scratch buffers.
+ * The set of sequences is only read, so any number of chains can sample the
+ * same store at the same time without locking.  With both strands on, a
+ * motif can sit on the reverse strand of a sequence and is then read as the
+ * reverse complement of its window.
+ */
+package gibbs_sampler;
+
+import java.util.Arrays;
+
+public class Chain {
+
+    private final SequenceStore S; // Set of sequences, shared
+    private final int l; // Length of z - little (one motif)
+    private final Rng rng;
+    private final int[] Z; // Motif start in each sequence, -1 when withdrawn
+    private final boolean[] reverse; // whether each motif is on the reverse strand
+    private final Profile profile; // Counts behind the thetas
+    private final Background background; // fixed theta zero, null for the counts outside the motifs
+    private final double[] scores; // Window scores of one sequence, reused
+    private final WeightedSampler sampler = new WeightedSampler();
+    private final ScoreKernel kernel = ScoreKernel.create();
+    private double score; // log score of the current alignment
+    private double temperature = 1; // word weights are raised to 1 / temperature
+    private boolean bothStrands; // draw words from the reverse strand too
+    private long iterations;
+    private int replicas = 1; // chains that ran as many iterations for this one, see ParallelTempering
+    private Convergence.Reason stopped; // why the last run ended
+    private long shiftEvery; // iterations between phase shift moves, 0 for none
+    private int shiftRadius; // largest shift tried by a move
+    private int[][] shiftCounts; // motif counts of a shifted alignment, scratch
+    private double[] shiftScores; // log score of each shift, scratch
+    private long shiftMoves; // phase shift moves made
+    private long shiftsTaken; // moves that shifted the alignment
+    private int[] bestZ; // best alignment seen, kept only once trackBest is called
+    private boolean[] bestReverse;
+    private double bestScore;
+    private Metrics metrics; // loop instrumentation, null for none
+
+    /**
+     * Starts a chain from a random Z (10.9 1, 2)
+     * @param S the set of sequences
+     * @param l the motif length
+     * @param rng the random numbers of this chain only
+     */
+    public Chain(SequenceStore S, int l, Rng rng) {
+        this(S, l, rng, null);
+    }
+
+    /**
+     * Starts a chain from given motif starts (10.9 2)
+     * @param S the set of sequences
+     * @param l the motif length
+     * @param rng the random numbers of this chain only
+     * @param start the motif start in each sequence, copied; null for random
+     * ones, and a negative start gets a random one too
+     */
+    public Chain(SequenceStore S, int l, Rng rng, int[] start) {
+        this(S, l, rng, start, null);
+    }
+
+    /**
+     * Starts a chain from given motif starts against a fixed theta zero
+     * @param S the set of sequences
+     * @param l the motif length
+     * @param rng the random numbers of this chain only
+     * @param start the motif start in each sequence as above, null for random ones
+     * @param background the theta zero, null for the letters outside the motifs
+     */
+    public Chain(SequenceStore S, int l, Rng rng, int[] start, Background background) {
+        this(S, l, rng, start, null, background);
+    }
+
+    /**
+     * Starts a chain from given motif starts and strands
+     * @param S the set of sequences
+     * @param l the motif length
+     * @param rng the random numbers of this chain only
+     * @param start the motif start in each sequence as above, null for random ones
+     * @param strands whether each given start is on the reverse strand, copied;
+     * null for the forward strand everywhere
+     * @param background the theta zero, null for the letters outside the motifs
+     */
+    public Chain(SequenceStore S, int l, Rng rng, int[] start, boolean[] strands, Background background) {
+        this.S = S;
+        this.l = l;
+        this.rng = rng;
+        this.background = background;
+        this.Z = new int[S.size()];
+        this.reverse = new boolean[S.size()];
+        int longest = 0;
+        for(int i = 0; i < S.size(); i++) {
+            Z[i] = start == null || start[i] < 0 ? getRandMotifPos(i) : start[i]; // randon z little statrt pos
+            reverse[i] = start != null && start[i] >= 0 && strands != null && strands[i];
+            longest = Math.max(longest, S.length(i));
+        }
+        this.scores = new double[2 * longest]; // room for both strands
+        this.profile = new Profile(S, Z, reverse, l, background);
+        this.score = logScoreSumS();
+    }
+
+    /**
+     * Runs the sampler until a convergence rule is met (10.9 3, 8)
+     * @param convergence the stop rules
+     * @return this chain, for chaining
+     */
+    public Chain run(Convergence convergence) {
+        return run(convergence.start(S.size(), score), 0, null);
+    }
+
+    /**
+     * Runs the sampler until the monitor says to stop, calling back between
+     * iterations now and then so the state can be saved, see Checkpoint
+     * @param monitor the stop rules, already following this chain
+     * @param every iterations between call backs, 0 for none
+     * @param checkpoint the call back, null for none
+     * @return this chain, for chaining
+     */
+    Chain run(Convergence.Monitor monitor, long every, Runnable checkpoint) {
+        while(true) { // Sampler loop (10.9 3)
+            step();
+            if(monitor.done(score)) {
+                break;
+            }
+            if(checkpoint != null && iterations % every == 0) {
+                checkpoint.run();
+            }
+        }
+        stopped = monitor.reason();
+        if(metrics != null) {
+            metrics.finish(this, stopped);
+        }
+        return this;
+    }
+
+    /**
+     * Runs a fixed number of sampler iterations, no stop rule
+     * @param steps how many iterations to run
+     */
+    public void run(long steps) {
+        for(long i = 0; i < steps; i++) {
+            step();
+        }
+    }
+
+    /**
+     * One sampler iteration: resamples the motif of one random sequence
+     */
+    public void step() {
+        long t0 = metrics == null ? 0 : System.nanoTime();
+        int randSeq = randInt(0, S.size()-1); // select random seq (10.9 4)
+        int was = Z[randSeq];
+        boolean wasReverse = reverse[randSeq];
+        profile.withdraw(randSeq, Z[randSeq], reverse[randSeq]); // delete the word (10.9 4)
+        Z[randSeq] = -1;
+        long t1 = metrics == null ? 0 : System.nanoTime();
+        // Figure 10.9 (5, 6), scores every l word in Si against the remaining profile
+        int words = bothStrands
+                ? kernel.scoreBothStrands(S.codes(), S.offset(randSeq), S.length(randSeq),
+                        profile.logOdds(), profile.reverseLogOdds(), l, scores)
+                : kernel.scoreWindows(S.codes(), S.offset(randSeq), S.length(randSeq),
+                        profile.logOdds(), l, scores);
+        int forward = bothStrands ? words / 2 : words; // reverse strand words come after
+        if(profile.markov()) { // the matrix is log theta, take off each window's background
+            background.subtract(S.offset(randSeq), forward, l, scores, 0);
+            if(bothStrands) { // the same letters, the same background
+                background.subtract(S.offset(randSeq), forward, l, scores, forward);
+            }
+        }
+        long t2 = metrics == null ? 0 : System.nanoTime();
+        // Choose the word of length l randomly depending on weight (10.9 7)
+        int randWord = getRandWordInd(scores, words);
+        long t3 = metrics == null ? 0 : System.nanoTime();
+        // replacing the word in S (10.9 7)
+        reverse[randSeq] = randWord >= forward;
+        Z[randSeq] = reverse[randSeq] ? randWord - forward : randWord;
+        profile.place(randSeq, Z[randSeq], reverse[randSeq]);
+        // Update overall score
+        score = logScoreSumS();
+        iterations++;
+        long t4 = metrics == null ? 0 : System.nanoTime();
+        long shifting = 0;
+        if(shiftEvery > 0 && iterations % shiftEvery == 0) {
+            phaseShift(shiftRadius);
+            shifting = metrics == null ? 0 : System.nanoTime() - t4;
+        }
+        if(metrics != null) { // after the shift, so a report holds its time
+            metrics.step(t1 - t0 + t4 - t3, t2 - t1, t3 - t2, shifting,
+                    Z[randSeq] != was || reverse[randSeq] != wasReverse, this);
+        }
+        if(bestZ != null && score > bestScore) {
+            keepBest();
+        }
+    }
+
+    /**
+     * Instruments the sampler loop from now on
+     * @param metrics where the figures go
+     * @return this chain, for chaining
+     */
+    public Chain metrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * @return the loop instrumentation, null when off
+     */
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Keeps a copy of the best alignment from now on, see bestZ
+     * @return this chain, for chaining
+     */
+    public Chain trackBest() {
+        if(bestZ == null) {
+            bestZ = new int[Z.length];
+            bestReverse = new boolean[Z.length];
+            keepBest();
+        }
+        return this;
+    }
+
+    /**
+     * Copies the current alignment as the best one
+     */
+    private void keepBest() {
+        System.arraycopy(Z, 0, bestZ, 0, Z.length);
+        System.arraycopy(reverse, 0, bestReverse, 0, reverse.length);
+        bestScore = score;
+    }
+
+    /**
+     * Puts back a best alignment saved earlier, see Checkpoint
+     * @param z the best motif starts
+     * @param strands the best motif strands
+     * @param score the log score of that alignment
+     */
+    void best(int[] z, boolean[] strands, double score) {
+        trackBest();
+        System.arraycopy(z, 0, bestZ, 0, bestZ.length);
+        System.arraycopy(strands, 0, bestReverse, 0, bestReverse.length);
+        bestScore = score;
+    }
+
+    /**
+     * Lets motifs sit on the reverse strand too: every window is scored on
+     * both strands and the word is drawn from both sets together
+     * @param on whether to search both strands
+     * @return this chain, for chaining
+     */
+    public Chain bothStrands(boolean on) {
+        this.bothStrands = on;
+        return this;
+    }
+
+    /**
+     * Turns on phase shift moves
+     * @param everySweeps sweeps over S between moves, 0 for none
+     * @param radius the largest shift tried, in both directions
+     * @return this chain, for chaining
+     */
+    public Chain phaseShifts(int everySweeps, int radius) {
+        this.shiftEvery = (long)everySweeps * S.size();
+        this.shiftRadius = radius;
+        this.shiftCounts = new int[5][l];
+        this.shiftScores = new double[2 * radius + 1];
+        return this;
+    }
+
+    /**
+     * Block move: scores the alignment with every motif start moved by the
+     * same -radius..+radius letters and draws one of those shifts by its score.
+     * A sequence whose shifted window would leave it or hold an N stays put.
+     * Undoes the off-by-k alignments single sequence steps take long to fix
+     * @param radius the largest shift tried, in both directions
+     * @return the shift made, 0 if the alignment stayed
+     */
+    public int phaseShift(int radius) {
+        if(shiftScores == null || shiftScores.length < 2 * radius + 1) {
+            shiftCounts = new int[5][l];
+            shiftScores = new double[2 * radius + 1];
+        }
+        int[] letters = profile.letters(); // every letter of S by code, motif or not
+        int[] outside = new int[5];
+        for(int shift = -radius; shift <= radius; shift++) {
+            for(int[] row : shiftCounts) {
+                Arrays.fill(row, 0);
+            }
+            System.arraycopy(letters, 0, outside, 0, outside.length);
+            double windows = 0; // Markov background of the shifted windows
+            for(int i = 0; i < S.size(); i++) {
+                int at = S.offset(i) + shifted(i, shift);
+                if(profile.markov()) {
+                    windows += background.window(at, l);
+                }
+                for(int j = 0; j < l; j++) {
+                    byte c = S.codes()[at + j];
+                    if(reverse[i]) {
+                        shiftCounts[c ^ 1][l - 1 - j]++;
+                    } else {
+                        shiftCounts[c][j]++;
+                    }
+                    outside[c]--;
+                }
+            }
+            shiftScores[shift + radius] = profile.score(shiftCounts, outside, S.size(), windows);
+        }
+        sampler.load(shiftScores, 2 * radius + 1, 1 / temperature);
+        int shift = sampler.draw(rng.nextDouble()) - radius;
+        shiftMoves++;
+        if(shift != 0) {
+            for(int i = 0; i < S.size(); i++) {
+                int to = shifted(i, shift);
+                if(to != Z[i]) {
+                    profile.withdraw(i, Z[i], reverse[i]);
+                    Z[i] = to;
+                    profile.place(i, to, reverse[i]);
+                }
+            }
+            score = logScoreSumS();
+            shiftsTaken++;
+        }
+        return shift;
+    }
+
+    /**
+     * @param seq the sequence index
+     * @param shift how far to move its motif, along the motif, so a motif on
+     * the reverse strand moves the other way in the sequence
+     * @return the moved start, or the current one if the move does not fit
+     */
+    private int shifted(int seq, int shift) {
+        int to = reverse[seq] ? Z[seq] - shift : Z[seq] + shift;
+        if(to < 0 || to > S.length(seq) - l || !S.clean(seq, to, l)) {
+            return Z[seq];
+        }
+        return to;
+    }
+
+    /**
+     * Computes the sum of the log-odds scores for all set S.  The motif counts
+     * are the letters of every aligned window, so the sum is read off them
+     * @return the sum of log10 of the PR(Z|theta) / PR(Z|theta_zero) scores
+     */
+    public double logScoreSumS() {
+        return profile.alignmentScore() / Math.log(10);
+    }
+
+    /**
+     * @return the information of the motifs in bits per column, see Profile
+     */
+    public double information() {
+        return profile.information();
+    }
+
+    /**
+     * @return the evidence for the motifs in bits, less a charge per column, see Profile
+     */
+    public double evidence() {
+        return profile.evidence();
+    }
+
+    /**
+     * gets a random position based on the score
+     * @param logScores the log score per word.  Must be in the words order
+     * @param n the number of words in logScores
+     * @return a randomposition index.  Higher probability to higher scores
+     */
+    private int getRandWordInd(double[] logScores, int n) {
+        sampler.load(logScores, n, 1 / temperature);
+        // random word index (according to weight)
+        return sampler.draw(rng.nextDouble());
+    }
+
+    /**
+     * get a random start position for a length l motif, among the windows
+     * without N
+     * @param seq the sequence to generate start position for a motif
+     * @return the random motif start position
+     */
+    private int getRandMotifPos(int seq) {
+        int maxStart = S.length(seq) - l; // maximum start position
+        int startPos = randInt(0, maxStart);
+        if(S.clean(seq, startPos, l)) {
+            return startPos;
+        }
+        int pick = randInt(0, cleanWindows(S, seq, l) - 1); // count them only when needed
+        for(int i = 0; i <= maxStart; i++) {
+            if(S.clean(seq, i, l) && pick-- == 0) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No window without N in sequence " + seq);
+    }
+
+    /**
+     * Counts the windows of a sequence that hold no N
+     * @param S the set of sequences
+     * @param seq the sequence index
+     * @param l the window length
+     * @return the number of candidate motif starts
+     */
+    protected static int cleanWindows(SequenceStore S, int seq, int l) {
+        int clean = 0;
+        int run = 0; // nucleotides since the last N
+        for(int i = 0; i < S.length(seq); i++) {
+            run = S.code(seq, i) == SequenceStore.N ? 0 : run + 1;
+            if(run >= l) {
+                clean++;
+            }
+        }
+        return clean;
+    }
+
+    /**
+     * Generates a random number in a specified range (including both extremes)
+     * @param min the min value desired (including)
+     * @param max the max value desired (including)
+     * @return the random number
+     */
+    private int randInt(int min, int max) {
+        return rng.nextInt(max - min + 1) + min;
+    }
+
+    /**
+     * @return the log score of the current alignment, see logScoreSumS
+     */
+    public double score() {
+        return score;
+    }
+
+    /**
+     * @return the number of sampler iterations run so far
+     */
+    public long iterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the iterations run for this result by every replica together,
+     * iterations() unless it came from ParallelTempering
+     */
+    public long totalIterations() {
+        return iterations * replicas;
+    }
+
+    /**
+     * Records how a run made of several chains went, see ParallelTempering
+     * @param iterations the iterations of the chain the stop rules watched
+     * @param replicas the chains that each ran that many iterations
+     * @param stopped the rule that ended the run
+     * @param shiftMoves the phase shift moves made on the way
+     * @param shiftsTaken the phase shift moves that moved an alignment
+     */
+    void finish(long iterations, int replicas, Convergence.Reason stopped, long shiftMoves, long shiftsTaken) {
+        this.iterations = iterations;
+        this.replicas = replicas;
+        this.stopped = stopped;
+        this.shiftMoves = shiftMoves;
+        this.shiftsTaken = shiftsTaken;
+    }
+
+    /**
+     * The best alignment seen since trackBest.  Shared, never modify it
+     * @return the motif starts, null when not tracked
+     */
+    public int[] bestZ() {
+        return bestZ;
+    }
+
+    /**
+     * @return the motif strands of the best alignment, null when not tracked
+     */
+    public boolean[] bestReverse() {
+        return bestReverse;
+    }
+
+    /**
+     * @return the log score of the best alignment since trackBest
+     */
+    public double bestScore() {
+        return bestScore;
+    }
+
+    /**
+     * @return the random numbers of the chain, for its saved state
+     */
+    Rng rng() {
+        return rng;
+    }
+
+    /**
+     * The motif counts.  Shared, never modify it
+     * @return counts per code and column
+     */
+    int[][] counts() {
+        return profile.counts();
+    }
+
+    /**
+     * @return the letter counts outside the motifs, see Distributed
+     */
+    int[] backgroundCounts() {
+        return profile.backgroundCounts();
+    }
+
+    /**
+     * @return the number of motifs in the counts, see Distributed
+     */
+    int aligned() {
+        return profile.aligned();
+    }
+
+    /**
+     * Replaces the counts by the ones of every shard of a distributed run,
+     * the motifs of this chain included, see Distributed
+     * @param motif the motif letter counts per code and column
+     * @param outside the letter counts outside the motifs per code
+     * @param aligned the number of motifs in motif
+     */
+    void counts(int[][] motif, int[] outside, int aligned) {
+        profile.counts(motif, outside, aligned);
+        score = logScoreSumS();
+    }
+
+    /**
+     * @return every letter of S by code, motif or not, see Distributed
+     */
+    int[] letters() {
+        return profile.letters();
+    }
+
+    /**
+     * Replaces the letters of S by the ones of every shard of a distributed
+     * run, see Distributed
+     * @param all the letter counts per code
+     */
+    void letters(int[] all) {
+        profile.letters(all);
+        score = logScoreSumS();
+    }
+
+    /**
+     * @return the phase shift moves made so far
+     */
+    public long shiftMoves() {
+        return shiftMoves;
+    }
+
+    /**
+     * @return the phase shift moves that moved the alignment
+     */
+    public long shiftsTaken() {
+        return shiftsTaken;
+    }
+
+    /**
+     * @return the temperature the word weights are flattened by
+     */
+    public double temperature() {
+        return temperature;
+    }
+
+    /**
+     * Sets the temperature, 1 samples the words by their plain weights
+     * @param temperature any positive value, higher gives flatter draws
+     */
+    public void temperature(double temperature) {
+        this.temperature = temperature;
+    }
+
+    /**
+     * @return the number of full sweeps over S run so far
+     */
+    public double sweeps() {
+        return (double)iterations / S.size();
+    }
+
+    /**
+     * @return the rule that ended the last run, null before any run
+     */
+    public Convergence.Reason stopped() {
+        return stopped;
+    }
+
+    /**
+     * @return the set of sequences the chain samples
+     */
+    public SequenceStore S() {
+        return S;
+    }
+
+    /**
+     * @return the motif length
+     */
+    public int l() {
+        return l;
+    }
+
+    /**
+     * The motif starts.  Shared, never modify it
+     * @return the motif start in each sequence
+     */
+    public int[] Z() {
+        return Z;
+    }
+
+    /**
+     * The motif strands.  Shared, never modify it
+     * @return whether the motif of each sequence is on the reverse strand
+     */
+    public boolean[] reverse() {
+        return reverse;
+    }
+
+    /**
+     * @return whether words are drawn from both strands
+     */
+    public boolean bothStrands() {
+        return bothStrands;
+    }
+
+    /**
+     * @return the theta for the current motifs
+     */
+    public double[][] getTheta() {
+        return profile.theta();
+    }
+
+    /**
+     * @return the theta zero for the current background
+     */
+    public double[] getThetaZero() {
+        return profile.thetaZero();
+    }
+}
@@ -0,0 +1,411 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Saves the state of every chain of a run now and then, so a run
+ * that was killed can go on where it was.  A chain copies its state between
+ * two iterations and goes back to sampling; one background thread per run
+ * writes the copies, each to a temporary file that is then renamed over the
+ * last one, so a checkpoint on disk is always whole.  A chain whose last copy
+ * is not written yet only replaces it.  Runs side by side, as in a batch, each
+ * have their own writer, so a write that fails is reported to its run only.
+ * Each chain has its own file in the checkpoint directory, binary and ending
+ * with a CRC32 of the rest.  Chains that run as replicas (replica exchange)
+ * are not saved.
+ */
+package gibbs_sampler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+public class Checkpoint implements AutoCloseable {
+
+    private static final int MAGIC = 0x47534350; // "GSCP"
+    private static final int VERSION = 1;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "checkpoint-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<Path, State> pending = new ConcurrentHashMap<>(); // latest copy per file
+    private volatile IOException failure; // first write that failed, reported once
+
+    /**
+     * Runs one chain of a run, saving it every so often, or goes on from its
+     * saved state when resuming and there is one.  Every chain of the run
+     * shares this checkpoint
+     * @param S the set of sequences
+     * @param config the run parameters, with a checkpoint directory
+     * @param rng the generator of a new chain, unused when resuming
+     * @param restart which chain of the run this is
+     * @return the chain when it stops
+     */
+    Chain run(SequenceStore S, GibbsSampler.Config config, Rng rng, int restart) {
+        Path file = file(config, restart);
+        Chain chain;
+        Convergence.Monitor monitor;
+        if(config.resume && Files.exists(file)) {
+            try {
+                State saved = read(file);
+                saved.check(S, config);
+                chain = config.chain(S, Rng.restore(saved.rng), restart, saved.Z, saved.reverse);
+                saved.check(chain);
+                chain.temperature(saved.temperature);
+                chain.finish(saved.iterations, 1, saved.stopped, saved.shiftMoves, saved.shiftsTaken);
+                chain.best(saved.bestZ, saved.bestReverse, saved.bestScore);
+                if(saved.stopped != null) {
+                    return chain; // it had finished
+                }
+                monitor = config.convergence.start(S.size(), chain.score());
+                monitor.restore(new DataInputStream(new ByteArrayInputStream(saved.monitor)));
+            } catch(IOException ex) {
+                throw new IllegalArgumentException("Cannot resume from " + file + ": " + ex.getMessage());
+            }
+        } else {
+            chain = config.chain(S, rng, restart);
+            monitor = config.convergence.start(S.size(), chain.score());
+        }
+        chain.trackBest();
+        final Convergence.Monitor watched = monitor;
+        final Chain running = chain;
+        long every = (long)config.checkpointEvery * S.size();
+        chain.run(monitor, Math.max(every, 1), () -> save(file, new State(running, watched)));
+        save(file, new State(chain, monitor)); // the end, so a resume returns it as is
+        return chain;
+    }
+
+    /**
+     * @param config the run parameters
+     * @param restart which chain of the run
+     * @return the checkpoint file of the chain
+     */
+    private static Path file(GibbsSampler.Config config, int restart) {
+        return config.checkpointDir.resolve("chain-" + restart + ".ckpt");
+    }
+
+    /**
+     * Hands a copy of a chain to the writer thread and returns at once
+     * @param file where the copy goes
+     * @param state the copy
+     */
+    private void save(Path file, State state) {
+        if(pending.put(file, state) == null) { // else the queued write takes the newer copy
+            writer.execute(() -> {
+                State latest = pending.remove(file);
+                if(latest != null) {
+                    try {
+                        write(file, latest);
+                    } catch(IOException ex) {
+                        if(failure == null) {
+                            System.err.println("Cannot write checkpoint " + file + ": " + ex.getMessage());
+                            failure = ex;
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Waits until every copy handed over so far is on disk and stops the
+     * writer thread
+     * @throws IOException when a write failed
+     */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            while(!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                // one thread, it ends after the last queued write
+            }
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing checkpoints");
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes a state to a temporary file next to the target, forces it to
+     * disk, renames it over the target and forces the directory so the
+     * rename survives a crash too
+     * @param file the checkpoint file
+     * @param state the chain state
+     * @throws IOException when the file cannot be written
+     */
+    static void write(Path file, State state) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream raw = Channels.newOutputStream(channel);
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(raw, crc)));
+            state.write(out);
+            out.flush();
+            new DataOutputStream(raw).writeLong(crc.getValue());
+            channel.force(true);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch(AtomicMoveNotSupportedException ex) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        try(FileChannel dir = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch(IOException ex) {
+            // a directory cannot be opened on some systems, Windows among them,
+            // which make the rename durable themselves
+        }
+    }
+
+    /**
+     * Reads a checkpoint file and checks its CRC
+     * @param file the checkpoint file
+     * @return the saved state
+     * @throws IOException when the file cannot be read or is damaged
+     */
+    static State read(Path file) throws IOException {
+        try(InputStream raw = new BufferedInputStream(Files.newInputStream(file))) {
+            CRC32 crc = new CRC32();
+            DataInputStream in = new DataInputStream(new CheckedInputStream(raw, crc));
+            State state = State.read(in);
+            long sum = crc.getValue();
+            if(new DataInputStream(raw).readLong() != sum) {
+                throw new IOException("checksum does not match, the file is damaged");
+            }
+            return state;
+        }
+    }
+
+    /**
+     * A copy of everything a chain needs to go on exactly where it was
+     */
+    static class State {
+        private int l;
+        private int sequences;
+        private int totalLength;
+        private boolean bothStrands;
+        private long[] rng;
+        private long iterations;
+        private double temperature;
+        private long shiftMoves;
+        private long shiftsTaken;
+        private Convergence.Reason stopped;
+        private int[] Z;
+        private boolean[] reverse;
+        private int[][] counts;
+        private double bestScore;
+        private int[] bestZ;
+        private boolean[] bestReverse;
+        private byte[] monitor; // Convergence.Monitor.save
+
+        private State() {
+        }
+
+        /**
+         * Copies a chain between two iterations
+         * @param chain the chain
+         * @param monitor the stop rules following it
+         */
+        State(Chain chain, Convergence.Monitor monitor) {
+            this.l = chain.l();
+            this.sequences = chain.S().size();
+            this.totalLength = chain.S().totalLength();
+            this.bothStrands = chain.bothStrands();
+            this.rng = chain.rng().state();
+            this.iterations = chain.iterations();
+            this.temperature = chain.temperature();
+            this.shiftMoves = chain.shiftMoves();
+            this.shiftsTaken = chain.shiftsTaken();
+            this.stopped = chain.stopped();
+            this.Z = chain.Z().clone();
+            this.reverse = chain.reverse().clone();
+            this.counts = new int[4][];
+            for(int b = 0; b < 4; b++) {
+                counts[b] = chain.counts()[b].clone();
+            }
+            this.bestScore = chain.bestScore();
+            this.bestZ = chain.bestZ().clone();
+            this.bestReverse = chain.bestReverse().clone();
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                monitor.save(new DataOutputStream(bytes));
+                this.monitor = bytes.toByteArray();
+            } catch(IOException ex) {
+                throw new IllegalStateException(ex); // in memory, cannot happen
+            }
+        }
+
+        /**
+         * @param out where to write the state
+         * @throws IOException when the write fails
+         */
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(l);
+            out.writeInt(sequences);
+            out.writeInt(totalLength);
+            out.writeBoolean(bothStrands);
+            for(long word : rng) {
+                out.writeLong(word);
+            }
+            out.writeLong(iterations);
+            out.writeDouble(temperature);
+            out.writeLong(shiftMoves);
+            out.writeLong(shiftsTaken);
+            out.writeByte(stopped == null ? -1 : stopped.ordinal());
+            writeInts(out, Z);
+            writeBits(out, reverse);
+            for(int[] row : counts) {
+                writeInts(out, row);
+            }
+            out.writeDouble(bestScore);
+            writeInts(out, bestZ);
+            writeBits(out, bestReverse);
+            out.writeInt(monitor.length);
+            out.write(monitor);
+        }
+
+        /**
+         * @param in where to read a state written by write
+         * @return the state
+         * @throws IOException when the read fails or it is no checkpoint
+         */
+        static State read(DataInputStream in) throws IOException {
+            if(in.readInt() != MAGIC) {
+                throw new IOException("not a checkpoint");
+            }
+            if(in.readInt() != VERSION) {
+                throw new IOException("checkpoint of another version");
+            }
+            State s = new State();
+            s.l = in.readInt();
+            s.sequences = in.readInt();
+            s.totalLength = in.readInt();
+            s.bothStrands = in.readBoolean();
+            s.rng = new long[4];
+            for(int k = 0; k < 4; k++) {
+                s.rng[k] = in.readLong();
+            }
+            s.iterations = in.readLong();
+            s.temperature = in.readDouble();
+            s.shiftMoves = in.readLong();
+            s.shiftsTaken = in.readLong();
+            int reason = in.readByte();
+            s.stopped = reason < 0 ? null : Convergence.Reason.values()[reason];
+            s.Z = readInts(in, s.sequences);
+            s.reverse = readBits(in, s.sequences);
+            s.counts = new int[4][];
+            for(int b = 0; b < 4; b++) {
+                s.counts[b] = readInts(in, s.l);
+            }
+            s.bestScore = in.readDouble();
+            s.bestZ = readInts(in, s.sequences);
+            s.bestReverse = readBits(in, s.sequences);
+            s.monitor = new byte[in.readInt()];
+            in.readFully(s.monitor);
+            return s;
+        }
+
+        /**
+         * Checks the state was saved by a run of the same kind on the same input
+         * @param S the set of sequences
+         * @param config the run parameters
+         * @throws IOException when they differ
+         */
+        void check(SequenceStore S, GibbsSampler.Config config) throws IOException {
+            if(sequences != S.size() || totalLength != S.totalLength()) {
+                throw new IOException("saved for another set of sequences");
+            }
+            if(l != config.l || bothStrands != config.bothStrands) {
+                throw new IOException("saved with another motif length or strands");
+            }
+            for(int i = 0; i < sequences; i++) {
+                if(Z[i] < 0 || Z[i] > S.length(i) - l || bestZ[i] < 0 || bestZ[i] > S.length(i) - l) {
+                    throw new IOException("motif start out of its sequence");
+                }
+            }
+        }
+
+        /**
+         * Checks the counts rebuilt from the saved motifs are the saved ones
+         * @param chain the chain restored from this state
+         * @throws IOException when they differ
+         */
+        void check(Chain chain) throws IOException {
+            for(int b = 0; b < 4; b++) {
+                if(!Arrays.equals(counts[b], chain.counts()[b])) {
+                    throw new IOException("counts do not match the motifs");
+                }
+            }
+        }
+
+        private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+            for(int v : values) {
+                out.writeInt(v);
+            }
+        }
+
+        private static int[] readInts(DataInputStream in, int n) throws IOException {
+            int[] values = new int[n];
+            for(int k = 0; k < n; k++) {
+                values[k] = in.readInt();
+            }
+            return values;
+        }
+
+        /**
+         * Packs flags eight to a byte
+         */
+        private static void writeBits(DataOutputStream out, boolean[] bits) throws IOException {
+            for(int k = 0; k < bits.length; k += 8) {
+                int b = 0;
+                for(int j = 0; j < 8 && k + j < bits.length; j++) {
+                    if(bits[k + j]) {
+                        b |= 1 << j;
+                    }
+                }
+                out.writeByte(b);
+            }
+        }
+
+        private static boolean[] readBits(DataInputStream in, int n) throws IOException {
+            boolean[] bits = new boolean[n];
+            for(int k = 0; k < n; k += 8) {
+                int b = in.readUnsignedByte();
+                for(int j = 0; j < 8 && k + j < n; j++) {
+                    bits[k + j] = (b & (1 << j)) != 0;
+                }
+            }
+            return bits;
+        }
+    }
+}
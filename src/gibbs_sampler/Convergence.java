@@ -0,0 +1,225 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: When a chain stops (figure 10.9 8).  Any mix of rules can be on,
+ * the first one met ends the run and is reported as the reason.  A sweep is
+ * as many iterations as there are sequences, so budgets in sweeps cost the
+ * same per sequence whatever the size of S.  Rules set to zero are off; only
+ * twenty sweeps without a better log score is on by default.  The old rule,
+ * the integer log score unchanged twenty iterations in a row, is off: on a
+ * large S it ends a chain long before one sweep has been made.
+ */
+package gibbs_sampler;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class Convergence {
+
+    /**
+     * The rule that ended a run
+     */
+    public enum Reason {
+        STABLE, // the log score kept the same integer part
+        TOLERANCE, // the relative change over the window was small enough
+        PATIENCE, // the best score did not improve for a while
+        STALLED, // the best score did not improve for some sweeps
+        MAX_ITERATIONS,
+        MAX_SWEEPS,
+        TIME_BUDGET
+    }
+
+    int stable; // unchanged integer log scores in a row
+    double tolerance; // relative score change over the window
+    int window = 100; // iterations the tolerance looks back
+    long patience; // iterations without a new best score
+    long stall = 20; // sweeps without a new best score
+    long maxIterations;
+    long maxSweeps;
+    long budgetMillis; // wall clock per chain
+
+    public Convergence stable(int stable) { this.stable = stable; return this; }
+    public Convergence tolerance(double tolerance, int window) { this.tolerance = tolerance; this.window = window; return this; }
+    public Convergence patience(long patience) { this.patience = patience; return this; }
+    public Convergence stall(long sweeps) { this.stall = sweeps; return this; }
+    public Convergence maxIterations(long maxIterations) { this.maxIterations = maxIterations; return this; }
+    public Convergence maxSweeps(long maxSweeps) { this.maxSweeps = maxSweeps; return this; }
+    public Convergence budgetMillis(long budgetMillis) { this.budgetMillis = budgetMillis; return this; }
+
+    /**
+     * @return a convergence with the same rules
+     */
+    Convergence copy() {
+        return new Convergence().stable(stable).tolerance(tolerance, window).patience(patience).stall(stall)
+                .maxIterations(maxIterations).maxSweeps(maxSweeps).budgetMillis(budgetMillis);
+    }
+
+    /**
+     * @return the rules that are on, for the reports
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        if(stable > 0) out.append(" stable=").append(stable);
+        if(tolerance > 0) out.append(" tolerance=").append(tolerance).append("/").append(window);
+        if(patience > 0) out.append(" patience=").append(patience);
+        if(stall > 0) out.append(" stall=").append(stall);
+        if(maxIterations > 0) out.append(" maxIterations=").append(maxIterations);
+        if(maxSweeps > 0) out.append(" maxSweeps=").append(maxSweeps);
+        if(budgetMillis > 0) out.append(" budgetMillis=").append(budgetMillis);
+        return out.length() == 0 ? "none" : out.substring(1);
+    }
+
+    /**
+     * @return true when at least one rule can stop a chain
+     */
+    public boolean any() {
+        return stable > 0 || tolerance > 0 || patience > 0 || stall > 0 || maxIterations > 0
+                || maxSweeps > 0 || budgetMillis > 0;
+    }
+
+    /**
+     * Starts watching one chain
+     * @param sequences the size of S, the iterations in one sweep
+     * @param score the log score the chain starts from
+     * @return the watcher of the chain
+     */
+    public Monitor start(int sequences, double score) {
+        return new Monitor(sequences, score);
+    }
+
+    /**
+     * Follows the scores of one chain.  Not shared between chains
+     */
+    public class Monitor {
+        private final int sequences;
+        private final long started = System.nanoTime();
+        private long deadline; // System.nanoTime to stop at
+        private final double[] recent; // last window scores, a ring
+        private long iterations;
+        private long checks; // calls to done, the tolerance window counts these
+        private int unchanged;
+        private double last;
+        private double best;
+        private long bestAt; // iteration of the best score
+        private Reason reason;
+
+        private Monitor(int sequences, double score) {
+            this.sequences = Math.max(sequences, 1);
+            this.last = score;
+            this.best = score;
+            this.deadline = budgetMillis > 0 ? System.nanoTime() + budgetMillis * 1000000L : 0;
+            this.recent = tolerance > 0 ? new double[Math.max(window, 1)] : null;
+        }
+
+        /**
+         * Records the score after one iteration
+         * @param score the log score of the alignment
+         * @return true when a rule says to stop
+         */
+        public boolean done(double score) {
+            return done(score, 1);
+        }
+
+        /**
+         * Records the score after several iterations checked at once, as in
+         * ParallelTempering.  The stable rule counts checks, not iterations
+         * @param score the log score of the alignment
+         * @param steps the iterations since the last check
+         * @return true when a rule says to stop
+         */
+        public boolean done(double score, long steps) {
+            iterations += steps;
+            checks++;
+            if((int)score == (int)last) {
+                unchanged++;
+            } else {
+                unchanged = 0;
+            }
+            last = score;
+            if(score > best) {
+                best = score;
+                bestAt = iterations;
+            }
+            if(stable > 0 && unchanged >= stable) {
+                reason = Reason.STABLE;
+            } else if(recent != null && checks > recent.length
+                    && Math.abs(score - recent[(int)(checks % recent.length)])
+                        <= tolerance * Math.max(Math.abs(score), Double.MIN_NORMAL)) {
+                reason = Reason.TOLERANCE;
+            } else if(patience > 0 && iterations - bestAt >= patience) {
+                reason = Reason.PATIENCE;
+            } else if(stall > 0 && iterations - bestAt >= stall * sequences) {
+                reason = Reason.STALLED;
+            } else if(maxIterations > 0 && iterations >= maxIterations) {
+                reason = Reason.MAX_ITERATIONS;
+            } else if(maxSweeps > 0 && iterations >= maxSweeps * sequences) {
+                reason = Reason.MAX_SWEEPS;
+            } else if(deadline != 0 && System.nanoTime() - deadline >= 0) {
+                reason = Reason.TIME_BUDGET;
+            }
+            if(recent != null) {
+                recent[(int)(checks % recent.length)] = score;
+            }
+            return reason != null;
+        }
+
+        /**
+         * Saves what the rules have seen so far, see Checkpoint
+         * @param out where to write
+         * @throws IOException when the write fails
+         */
+        void save(DataOutput out) throws IOException {
+            out.writeLong(iterations);
+            out.writeLong(checks);
+            out.writeInt(unchanged);
+            out.writeDouble(last);
+            out.writeDouble(best);
+            out.writeLong(bestAt);
+            out.writeLong(System.nanoTime() - started); // budget spent
+            out.writeInt(recent == null ? 0 : recent.length);
+            for(int k = 0; recent != null && k < recent.length; k++) {
+                out.writeDouble(recent[k]);
+            }
+        }
+
+        /**
+         * Picks up where a saved monitor stopped.  The time budget goes on
+         * from what was spent; a tolerance window of another size starts over
+         * @param in where to read
+         * @throws IOException when the read fails
+         */
+        void restore(DataInput in) throws IOException {
+            iterations = in.readLong();
+            checks = in.readLong();
+            unchanged = in.readInt();
+            last = in.readDouble();
+            best = in.readDouble();
+            bestAt = in.readLong();
+            long spent = in.readLong();
+            if(deadline != 0) {
+                deadline -= spent;
+            }
+            double[] saved = new double[in.readInt()];
+            for(int k = 0; k < saved.length; k++) {
+                saved[k] = in.readDouble();
+            }
+            if(recent != null && recent.length == saved.length) {
+                System.arraycopy(saved, 0, recent, 0, saved.length);
+            } else if(recent != null) {
+                checks = 0; // the window fills again
+            }
+        }
+
+        /** @return the rule that stopped the chain, null while running */
+        public Reason reason() { return reason; }
+
+        /** @return the iterations recorded */
+        public long iterations() { return iterations; }
+
+        /** @return the full sweeps over S recorded */
+        public double sweeps() { return (double)iterations / sequences; }
+    }
+}
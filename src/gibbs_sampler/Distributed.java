@@ -0,0 +1,398 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Samples one chain over worker processes for sets too large
+ * for one JVM.  The sequences are split into shards, every n-th sequence to
+ * the same worker, and each worker keeps the motif starts of its shard in a
+ * Chain of its own.  Its profile holds the counts of all shards, so a sweep
+ * over the shard samples against the whole alignment as it was when the
+ * sweep started plus the worker's own moves.  After every sweep each worker
+ * sends the change of its counts, 5 * (l + 1) integers however large the
+ * shard, the coordinator adds them up, checks the stop rules on the score of
+ * the sum and sends the new counts back.  Sequences never leave the workers
+ * until the motifs are written.  Plain sockets, one connection per worker;
+ * in local mode the workers are JVMs started on this machine.
+ */
+package gibbs_sampler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class Distributed {
+
+    private static final int ACCEPT_TIMEOUT = 120000; // milliseconds to wait for each worker
+    private static final int CODES = 5; // rows of the counts, N included
+
+    /**
+     * What a distributed run found and where its time went
+     */
+    public static class Result {
+        private final List<String> motifs; // output lines in the order of S
+        private final Convergence.Reason reason;
+        private final int workers;
+        private final long sweeps;
+        private final double score;
+        private final long nanos; // wall clock of the sweeps
+        private final long slowest; // sum over sweeps of the slowest worker's sampling time
+
+        Result(List<String> motifs, Convergence.Reason reason, int workers, long sweeps, double score,
+                long nanos, long slowest) {
+            this.motifs = motifs;
+            this.reason = reason;
+            this.workers = workers;
+            this.sweeps = sweeps;
+            this.score = score;
+            this.nanos = nanos;
+            this.slowest = slowest;
+        }
+
+        /** @return the motif lines, as Gibbs.writeMotifToFile writes them */
+        public List<String> motifs() { return motifs; }
+
+        /** @return the rule that stopped the run */
+        public Convergence.Reason reason() { return reason; }
+
+        /** @return the number of workers */
+        public int workers() { return workers; }
+
+        /** @return the sweeps over all of S */
+        public long sweeps() { return sweeps; }
+
+        /** @return the log score of the final alignment */
+        public double score() { return score; }
+
+        /** @return the seconds the sweeps took */
+        public double seconds() { return nanos / 1e9; }
+
+        /** @return sweeps over all of S per second */
+        public double sweepsPerSecond() { return sweeps / Math.max(seconds(), 1e-9); }
+
+        /**
+         * @return the share of the time spent exchanging counts and waiting,
+         * not sampling on the slowest worker
+         */
+        public double exchange() { return nanos == 0 ? 0 : Math.max(0, 1 - (double)slowest / nanos); }
+    }
+
+    /**
+     * Runs the coordinator: hands every worker that connects its shard,
+     * adds up their counts after every sweep and stops them when a rule of
+     * the config is met.  The workers read the input themselves
+     * @param server where the workers connect
+     * @param input the sequence file, a path every worker can read
+     * @param config the run parameters: motif length, seed, strands, stop rules
+     * @param workers the number of workers to wait for
+     * @return the result of the run
+     * @throws IOException when a worker cannot be reached or fails
+     */
+    public static Result coordinate(ServerSocket server, String input, GibbsSampler.Config config, int workers)
+            throws IOException {
+        if(workers < 1) {
+            throw new IllegalArgumentException("A distributed run needs at least one worker");
+        }
+        check(config);
+        int l = config.l;
+        List<Socket> sockets = new ArrayList<>();
+        List<DataInputStream> in = new ArrayList<>();
+        List<DataOutputStream> out = new ArrayList<>();
+        server.setSoTimeout(ACCEPT_TIMEOUT);
+        try {
+            for(int w = 0; w < workers; w++) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                in.add(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+                DataOutputStream o = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                out.add(o);
+                o.writeUTF(input);
+                o.writeInt(l);
+                o.writeLong(config.seed);
+                o.writeBoolean(config.bothStrands);
+                o.writeInt(w); // the shard
+                o.writeInt(workers);
+                o.flush();
+            }
+            int[][] motif = new int[CODES][l];
+            int[] outside = new int[CODES];
+            int[] letters = new int[CODES];
+            int aligned = 0;
+            int sequences = 0;
+            for(int w = 0; w < workers; w++) { // every shard counts its letters and random start
+                int size = in.get(w).readInt();
+                if(size < 0) {
+                    throw new IllegalArgumentException("Worker " + w + ": " + in.get(w).readUTF());
+                }
+                sequences += size;
+                for(int c = 0; c < CODES; c++) {
+                    letters[c] += in.get(w).readInt();
+                }
+                aligned += readCounts(in.get(w), motif, outside);
+            }
+            if(sequences == 0) {
+                throw new IllegalArgumentException("No sequences");
+            }
+            for(DataOutputStream o : out) { // theta zero scores the letters of every shard
+                for(int c = 0; c < CODES; c++) {
+                    o.writeInt(letters[c]);
+                }
+            }
+            // a profile of no sequences scores any counts given to it
+            Profile sum = new Profile(new SequenceStore.Builder().build(), new int[0], l);
+            sum.letters(letters);
+            sum.counts(motif, outside, aligned);
+            Convergence.Monitor monitor = config.convergence.start(sequences, score(sum));
+            long sweeps = 0;
+            long slowest = 0;
+            long started = System.nanoTime();
+            do {
+                for(DataOutputStream o : out) {
+                    o.writeBoolean(true); // one more sweep
+                    writeCounts(o, motif, outside, aligned);
+                    o.flush();
+                }
+                long longest = 0;
+                for(DataInputStream i : in) { // the changes add up in any order
+                    aligned += readCounts(i, motif, outside);
+                    longest = Math.max(longest, i.readLong());
+                }
+                slowest += longest;
+                sweeps++;
+                sum.counts(motif, outside, aligned);
+            } while(!monitor.done(score(sum), sequences));
+            long nanos = System.nanoTime() - started;
+            List<List<String>> shards = new ArrayList<>();
+            for(int w = 0; w < workers; w++) {
+                out.get(w).writeBoolean(false); // stop and send the motifs
+                out.get(w).flush();
+                List<String> lines = new ArrayList<>();
+                for(int n = in.get(w).readInt(); n > 0; n--) {
+                    lines.add(in.get(w).readUTF());
+                }
+                shards.add(lines);
+            }
+            List<String> motifs = new ArrayList<>();
+            for(int i = 0; i < sequences; i++) { // back to the order of S
+                motifs.add(shards.get(i % workers).get(i / workers));
+            }
+            return new Result(motifs, monitor.reason(), workers, sweeps, score(sum), nanos, slowest);
+        } finally {
+            for(Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * Runs a worker until the coordinator stops it
+     * @param host where the coordinator runs
+     * @param port the port it listens on
+     * @throws IOException when the coordinator cannot be reached
+     */
+    public static void work(String host, int port) throws IOException {
+        try(Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            String input = in.readUTF();
+            int l = in.readInt();
+            long seed = in.readLong();
+            boolean bothStrands = in.readBoolean();
+            int shard = in.readInt();
+            int shards = in.readInt();
+            SequenceStore S;
+            try {
+                S = GibbsSampler.load(input, shard, shards); // never the whole set
+                for(int i = 0; i < S.size(); i++) {
+                    if(Chain.cleanWindows(S, i, l) == 0) {
+                        throw new IllegalArgumentException("Sequence " + (S.id(i) == null ? "" : S.id(i) + " ")
+                                + "has no window of " + l + " nucleotides without N");
+                    }
+                }
+            } catch(IOException | IllegalArgumentException ex) { // the coordinator reports it
+                out.writeInt(-1);
+                out.writeUTF(String.valueOf(ex.getMessage()));
+                out.flush();
+                return;
+            }
+            Rng rng = new Rng(seed);
+            Rng own = null;
+            for(int w = 0; w <= shard; w++) { // the same generator for the same shard every run
+                own = rng.split();
+            }
+            Chain chain = new Chain(S, l, own).bothStrands(bothStrands);
+            int[][] delta = new int[CODES][l];
+            int[] outsideDelta = new int[CODES];
+            out.writeInt(S.size());
+            for(int c = 0; c < CODES; c++) {
+                out.writeInt(chain.letters()[c]);
+            }
+            writeCounts(out, chain.counts(), chain.backgroundCounts(), chain.aligned());
+            out.flush();
+            int[] letters = new int[CODES];
+            for(int c = 0; c < CODES; c++) {
+                letters[c] = in.readInt();
+            }
+            chain.letters(letters);
+            int[][] motif = new int[CODES][l];
+            int[] outside = new int[CODES];
+            while(in.readBoolean()) {
+                int aligned = readCounts(in, motif, outside, true);
+                chain.counts(motif, outside, aligned);
+                long started = System.nanoTime();
+                chain.run(S.size()); // one sweep over the shard
+                long nanos = System.nanoTime() - started;
+                int[][] now = chain.counts();
+                int[] outsideNow = chain.backgroundCounts();
+                for(int c = 0; c < CODES; c++) { // send the change only
+                    for(int j = 0; j < l; j++) {
+                        delta[c][j] = now[c][j] - motif[c][j];
+                    }
+                    outsideDelta[c] = outsideNow[c] - outside[c];
+                }
+                writeCounts(out, delta, outsideDelta, chain.aligned() - aligned);
+                out.writeLong(nanos);
+                out.flush();
+            }
+            StringWriter motifs = new StringWriter();
+            try(PrintWriter w = new PrintWriter(motifs)) {
+                Gibbs.writeMotifToFile(chain, w);
+            }
+            String[] lines = motifs.toString().split("\\R");
+            out.writeInt(S.size());
+            for(int i = 0; i < S.size(); i++) {
+                out.writeUTF(lines[i]);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Runs the coordinator with its workers as JVMs on this machine, over
+     * localhost
+     * @param input the sequence file
+     * @param config the run parameters
+     * @param workers the number of worker JVMs
+     * @return the result of the run
+     * @throws IOException when a worker cannot be started or fails
+     */
+    public static Result local(String input, GibbsSampler.Config config, int workers) throws IOException {
+        check(config); // before any worker is started
+        List<Process> processes = new ArrayList<>();
+        try(ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            for(int w = 0; w < workers; w++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                if(ScoreKernel.backend().equals("vector")) { // the same kernel as here
+                    command.add("--add-modules");
+                    command.add("jdk.incubator.vector");
+                }
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(GibbsSampler.class.getName());
+                command.add("-worker");
+                command.add(server.getInetAddress().getHostAddress() + ":" + server.getLocalPort());
+                processes.add(new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT).start());
+            }
+            return coordinate(server, new File(input).getAbsolutePath(), config, workers);
+        } finally {
+            for(Process p : processes) {
+                try {
+                    if(!p.waitFor(10, TimeUnit.SECONDS)) {
+                        p.destroyForcibly();
+                    }
+                } catch(InterruptedException ex) {
+                    p.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Refuses what one chain over workers does not do
+     * @param config the run parameters
+     */
+    private static void check(GibbsSampler.Config config) {
+        if(config.backgroundOrder >= 0 || config.background != null || config.replicas > 1
+                || config.shiftEvery > 0 || config.checkpointDir != null || config.chains != 1
+                || config.seedK > 0 || config.metricsEvery > 0 || config.progress != null) {
+            throw new IllegalArgumentException("A distributed run takes no -background, -tempering, -shift,"
+                    + " -checkpoint, -chains, -kmer, -metrics or -progress");
+        }
+    }
+
+    /**
+     * @param profile the counts of every shard
+     * @return the log score of the alignment as Chain.logScoreSumS gives it
+     */
+    private static double score(Profile profile) {
+        return profile.alignmentScore() / Math.log(10);
+    }
+
+    /**
+     * Sends counts
+     * @param out where to write
+     * @param motif the motif letter counts per code and column
+     * @param outside the letter counts outside the motifs per code
+     * @param aligned the number of motifs
+     * @throws IOException when the write fails
+     */
+    private static void writeCounts(DataOutputStream out, int[][] motif, int[] outside, int aligned)
+            throws IOException {
+        for(int c = 0; c < CODES; c++) {
+            for(int j = 0; j < motif[c].length; j++) {
+                out.writeInt(motif[c][j]);
+            }
+            out.writeInt(outside[c]);
+        }
+        out.writeInt(aligned);
+    }
+
+    /**
+     * Adds counts sent by writeCounts
+     * @param in where to read
+     * @param motif adds the motif letter counts
+     * @param outside adds the letter counts outside the motifs
+     * @return the number of motifs sent
+     * @throws IOException when the read fails
+     */
+    private static int readCounts(DataInputStream in, int[][] motif, int[] outside) throws IOException {
+        return readCounts(in, motif, outside, false);
+    }
+
+    /**
+     * Reads counts sent by writeCounts
+     * @param in where to read
+     * @param motif receives the motif letter counts
+     * @param outside receives the letter counts outside the motifs
+     * @param replace overwrite the arrays instead of adding to them
+     * @return the number of motifs sent
+     * @throws IOException when the read fails
+     */
+    private static int readCounts(DataInputStream in, int[][] motif, int[] outside, boolean replace)
+            throws IOException {
+        for(int c = 0; c < CODES; c++) {
+            for(int j = 0; j < motif[c].length; j++) {
+                motif[c][j] = (replace ? 0 : motif[c][j]) + in.readInt();
+            }
+            outside[c] = (replace ? 0 : outside[c]) + in.readInt();
+        }
+        return in.readInt();
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Reads FASTA and multi-FASTA files, plain or gzipped, straight
+ * into a SequenceStore.  Plain files are memory mapped window by window and
+ * gzipped ones are streamed through a channel buffer; either way bytes go to
+ * codes without any String per line.  Sequence names (the header up to the
+ * first blank) are kept for the output, wrapped lines are joined and every
+ * letter that is not a nucleotide (N and the IUPAC codes) becomes N.  A
+ * shard of a file keeps every n-th record only, see Distributed.
+ */
+package gibbs_sampler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+public class FastaReader {
+
+    private static final long WINDOW = 1L << 30; // bytes mapped at a time
+    private static final int INITIAL = 1 << 24; // codes made room for up front, the store grows past it
+
+    private final SequenceStore.Builder S;
+    private final int shard; // records kept, the ones whose index is shard modulo shards
+    private final int shards;
+    private int records; // records with letters so far, as the store counts sequences
+    private boolean started; // the record under construction has letters
+    private boolean keep = true; // the record under construction is kept
+    private String name; // of the record under construction
+    private byte[] header = new byte[128]; // header under construction
+    private int headerLength;
+    private boolean inHeader;
+    private boolean lineStart = true;
+
+    private FastaReader(SequenceStore.Builder S, int shard, int shards) {
+        if(shards < 1 || shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException("No shard " + shard + " of " + shards);
+        }
+        this.S = S;
+        this.shard = shard;
+        this.shards = shards;
+    }
+
+    /**
+     * Tells FASTA input apart from one sequence per line text
+     * @param path the file to look at
+     * @return true for gzipped files and files whose first letter is '>'
+     * @throws IOException when the file cannot be read
+     */
+    public static boolean isFasta(Path path) throws IOException {
+        if(path.getFileName().toString().endsWith(".gz")) {
+            return true;
+        }
+        try(InputStream in = Files.newInputStream(path)) {
+            int b;
+            while((b = in.read()) != -1 && b <= ' ') {
+                // skip leading blanks
+            }
+            return b == '>';
+        }
+    }
+
+    /**
+     * Reads a FASTA file, gzipped when its name ends in .gz
+     * @param path the file to read
+     * @return the set of sequences, named by their headers
+     * @throws IOException when the file cannot be read
+     */
+    public static SequenceStore read(Path path) throws IOException {
+        return read(path, 0, 1);
+    }
+
+    /**
+     * Reads one shard of a FASTA file, gzipped when its name ends in .gz:
+     * the sequences shard, shard + shards and so on of the whole file, so
+     * long and short sequences spread evenly.  The others are skipped as
+     * they are read, so the whole set is never held
+     * @param path the file to read
+     * @param shard the shard, from 0
+     * @param shards the number of shards
+     * @return the sequences of the shard, named by their headers
+     * @throws IOException when the file cannot be read
+     */
+    public static SequenceStore read(Path path, int shard, int shards) throws IOException {
+        if(path.getFileName().toString().endsWith(".gz")) {
+            try(ReadableByteChannel in = Channels.newChannel(new GZIPInputStream(Files.newInputStream(path), 1 << 16))) {
+                return read(in, shard, shards);
+            }
+        }
+        try(FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = in.size();
+            FastaReader reader = new FastaReader(new SequenceStore.Builder((int)Math.min(size / shards, INITIAL)),
+                    shard, shards);
+            for(long pos = 0; pos < size; pos += WINDOW) {
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, size - pos));
+                reader.feed(window);
+            }
+            return reader.finish();
+        }
+    }
+
+    /**
+     * Reads FASTA from any channel through one reused buffer
+     * @param in the channel to read until its end
+     * @return the set of sequences, named by their headers
+     * @throws IOException when the channel cannot be read
+     */
+    public static SequenceStore read(ReadableByteChannel in) throws IOException {
+        return read(in, 0, 1);
+    }
+
+    /**
+     * Reads one shard of the FASTA of a channel through one reused buffer
+     * @param in the channel to read until its end
+     * @param shard the shard, from 0
+     * @param shards the number of shards
+     * @return the sequences of the shard, named by their headers
+     * @throws IOException when the channel cannot be read
+     */
+    private static SequenceStore read(ReadableByteChannel in, int shard, int shards) throws IOException {
+        FastaReader reader = new FastaReader(new SequenceStore.Builder(1 << 20), shard, shards);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        while(in.read(buffer) != -1) {
+            buffer.flip();
+            reader.feed(buffer);
+            buffer.clear();
+        }
+        return reader.finish();
+    }
+
+    /**
+     * Parses the bytes left in a buffer.  A line may run over into the next one
+     * @param buffer the bytes to parse
+     */
+    private void feed(ByteBuffer buffer) {
+        while(buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if(b == '\n' || b == '\r') {
+                if(inHeader) {
+                    endHeader();
+                }
+                lineStart = true;
+                continue;
+            }
+            if(lineStart && b == '>') { // a new record
+                S.endSequence();
+                started = false;
+                name = null;
+                inHeader = true;
+                headerLength = 0;
+            } else if(inHeader) {
+                if(headerLength == header.length) {
+                    header = Arrays.copyOf(header, header.length * 2);
+                }
+                header[headerLength++] = b;
+            } else if(b > ' ') {
+                if(!started) {
+                    begin();
+                }
+                if(keep) {
+                    S.append(SequenceStore.encode(b));
+                }
+            }
+            lineStart = false;
+        }
+    }
+
+    /**
+     * Keeps the first word of the header as the sequence name, "> chr1" too
+     */
+    private void endHeader() {
+        int begin = 0;
+        while(begin < headerLength && header[begin] <= ' ') {
+            begin++;
+        }
+        int end = begin;
+        while(end < headerLength && header[end] > ' ') {
+            end++;
+        }
+        name = new String(header, begin, end - begin, StandardCharsets.US_ASCII);
+        inHeader = false;
+    }
+
+    /**
+     * Numbers the record under construction on its first letter, since the
+     * store drops records without any, and names it when it is kept
+     */
+    private void begin() {
+        started = true;
+        keep = records++ % shards == shard;
+        if(keep) {
+            S.id(name);
+        }
+    }
+
+    /**
+     * @return the store with the last record closed
+     */
+    private SequenceStore finish() {
+        if(inHeader) {
+            endHeader();
+        }
+        return S.build();
+    }
+}
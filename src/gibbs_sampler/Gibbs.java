@@ -1,117 +1,96 @@
 /**
  * Authors: Jesse Gerringer, Gleb Sklyr
  * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
- * Last edited: 12/11/2016 (mm/dd/yyyy) 7:24:PM
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
  * Description: Various methods that implement the Gibbs Sampler algorithm
  */
 package gibbs_sampler;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.InputMismatchException;
-import java.util.List;
-import java.util.Random;
 import java.util.Scanner;
 
 public class Gibbs {
     
     /**
-     * gets a random position based on the score
-     * @param lWordsPr the scoe per word.  Must be in the words order
-     * @return a randomposition index.  Higher probability to higher scores
+     * Prints the candidate motifs from each sequence in S to a file.  When the
+     * sequences are named the name and the 1-based motif start follow each
+     * motif, separated by tabs.  When both strands are searched the strand,
+     * + or -, comes last and a reverse strand motif is reverse complemented
+     * @param chain the chain holding the motifs
+     * @param outputStream the stream to the file
      */
-    protected static int getRandWordInd(List<Object> lWordsPr) {
-        int word = randInt(0, lWordsPr.size()-1);
-        double sum = 0;
-        double[] frac = new double[lWordsPr.size()];
-        double[] Norfrac = new double[lWordsPr.size()];
-        for(Object score : lWordsPr) { // add up all scores
-            sum = sum + (double)score;
-        }
-        int x = 0;
-        for(Object score : lWordsPr) { // fill up the fraction array
-            frac[x] = ((double)score/(double)sum)*100.0;
-            x++;
-        }
-        for(int i = 0; i < frac.length; i++) { // normalize frac array
-            Norfrac[i] = arraySum(frac, i);
-        }
-        int rand = Gibbs.randInt(0, 99); // random int
-        for(int i = 0; i < Norfrac.length; i++){ // chrck of itsin range of i
-            if(rand <= Norfrac[i]) {
-                word = i;
-                break; // found the random word!!
+    protected static void writeMotifToFile(Chain chain, PrintWriter outputStream) {
+        SequenceStore s = chain.S();
+        for(int i = 0; i < s.size(); i++) {
+            int z = chain.Z()[i];
+            String line = motif(chain, i);
+            if(s.id(i) != null) {
+                line += "\t" + s.id(i) + "\t" + (z + 1);
             }
+            if(chain.bothStrands()) {
+                line += "\t" + strand(chain, i);
+            }
+            outputStream.println(line);
         }
-        // random word index (according to weight)
-        return word;
     }
-    
+
     /**
-     * Sums an array till a certain point
-     * @param array the array to sum
-     * @param pos up to which point to sum
-     * @return the sum of points in the array until pos
+     * The motif of a sequence as the motif reads, reverse complemented when on
+     * the reverse strand
+     * @param chain the chain holding the motifs
+     * @param seq the sequence index
+     * @return the motif letters, upper case
      */
-    protected static double arraySum(double array[], int pos) {
-        double sum = 0;
-        for(int i = 0; i <= pos; i++) {
-            sum = sum + array[i]; 
-        }
-        return sum;
+    private static String motif(Chain chain, int seq) {
+        int z = chain.Z()[seq];
+        return chain.reverse()[seq] ? chain.S().decodeReverse(seq, z, z + chain.l(), true)
+                : chain.S().decode(seq, z, z + chain.l(), true);
     }
-    
+
     /**
-     * Prints the candidate motifs from each sequence in S to a file
-     * @param outputStream the stream to the file
+     * @param chain the chain holding the motifs
+     * @param seq the sequence index
+     * @return '-' if the motif of the sequence is on the reverse strand, else '+'
      */
-    protected static void writeMotifToFile(PrintWriter outputStream) {
-        for(int i = 0; i < Gibbs_Sampler.S.size(); i++) {
-            for(int j = 0; j < Gibbs_Sampler.S.get(i).length(); j++) {
-                if(Gibbs_Sampler.S.get(i).charAt(j) == 'A'||Gibbs_Sampler.S.get(i).charAt(j) == 'T'||Gibbs_Sampler.S.get(i).charAt(j) == 'C'||Gibbs_Sampler.S.get(i).charAt(j) == 'G') { // if its motif candidate
-                    outputStream.println(Gibbs_Sampler.S.get(i).substring(j, (j+Gibbs_Sampler.l)));
-                    break;
-                }
-            }
-        }
+    private static char strand(Chain chain, int seq) {
+        return chain.reverse()[seq] ? '-' : '+';
     }
     
     /**
-     * Prints the uppercased letters in each S set of sequences
+     * Prints the motif candidates of each sequence in S
+     * @param chain the chain holding the motifs
      */
-    protected static void printMotifOnly() {
+    protected static void printMotifOnly(Chain chain) {
         System.out.println("Candidate motif: ");
-        for(int i = 0; i < Gibbs_Sampler.S.size(); i++) {
-            for(int j = 0; j < Gibbs_Sampler.S.get(i).length(); j++) {
-                if(Gibbs_Sampler.S.get(i).charAt(j) == 'A'||Gibbs_Sampler.S.get(i).charAt(j) == 'T'||Gibbs_Sampler.S.get(i).charAt(j) == 'C'||Gibbs_Sampler.S.get(i).charAt(j) == 'G') { // if its motif candidate
-                    System.out.println(Gibbs_Sampler.S.get(i).substring(j, (j+Gibbs_Sampler.l)));
-                    break;
-                }
-            }
+        for(int i = 0; i < chain.S().size(); i++) {
+            System.out.println(motif(chain, i));
         }
     }
     
     /**
      * Prints the concensus motif as from Theta
+     * @param chain the chain holding the motifs
      */
-    protected static void printConcensus() {
+    protected static void printConcensus(Chain chain) {
         System.out.println("Consensus Motif: ");
-        for(int j = 0; j < Gibbs_Sampler.THETA_ATCG[0].length; j++) {
+        double[][] theta = chain.getTheta();
+        for(int j = 0; j < theta[0].length; j++) {
             String print = "A";
-            double max = Gibbs_Sampler.THETA_ATCG[0][j];
-            if(Gibbs_Sampler.THETA_ATCG[1][j] > max) {
-                max = Gibbs_Sampler.THETA_ATCG[1][j];
+            double max = theta[0][j];
+            if(theta[1][j] > max) {
+                max = theta[1][j];
                 print = "T";
             } 
-            if(Gibbs_Sampler.THETA_ATCG[2][j] > max) {
-                max = Gibbs_Sampler.THETA_ATCG[2][j];
+            if(theta[2][j] > max) {
+                max = theta[2][j];
                 print = "C";
             } 
-            if(Gibbs_Sampler.THETA_ATCG[3][j] > max) {
-                max = Gibbs_Sampler.THETA_ATCG[3][j];
+            if(theta[3][j] > max) {
+                max = theta[3][j];
                 print = "G";
             }
             System.out.print(print);
@@ -120,231 +99,73 @@ public class Gibbs {
     }
     
     /**
-     * Prints set S from Gibbs Sampler with the motif aligned
+     * Prints set S from Gibbs Sampler with the motif aligned.  When both
+     * strands are searched each line starts with the strand of its motif
+     * @param chain the chain holding the motifs
      */
-    protected static void printSmotif() {
+    protected static void printSmotif(Chain chain) {
         System.out.println("S with aligned motif: ");
         int maxMotif = 0;
-        List<String> motifPos = new ArrayList();
         // Find farthest motif
-        for(String s : Gibbs_Sampler.S) { // for every string
-            for(int i = 0; i < s.length(); i++) { // for every character
-                if(s.charAt(i) == 'A'||s.charAt(i) == 'T'||s.charAt(i) == 'C'||s.charAt(i) == 'G') { // find first motif letter
-                    motifPos.add("" + i); // add motif start pos
-                    if(i > maxMotif) {
-                    maxMotif = i;
-                    }
-                    break;
-                }
+        for(int z : chain.Z()) {
+            if(z > maxMotif) {
+                maxMotif = z;
             }
         }
         // Print with alignment
-        int x = 0;
-        for(String s : Gibbs_Sampler.S) {
-            printSpaces(maxMotif-Integer.parseInt(motifPos.get(x)));
-            System.out.print(s);
-            System.out.println();
-            x++;
-        }
-    }
-    
-    /**
-     * prints some spaces in one line
-     * @param numS the number of spaces to be printed
-     */
-    private static void printSpaces(int numS) {
-        for(int i = 0; i < numS; i++) {
-            System.out.print(" ");
+        for(int i = 0; i < chain.S().size(); i++) {
+            if(chain.bothStrands()) {
+                System.out.print(strand(chain, i) + " ");
+            }
+            printSpaces(maxMotif - chain.Z()[i]);
+            System.out.println(withMotif(chain, i));
         }
     }
     
     /**
-     * Computes the sum of the PR scores for all set S
-     * @return the sum of logs of the PR scores
+     * Decodes a sequence of S with its motif candidate upper cased
+     * @param chain the chain holding the motifs
+     * @param seq the sequence index
+     * @return the sequence as letters
      */
-    protected static double logScoreSumS() {
-        List<String> copy = Gibbs_Sampler.S;
-        double sum = 0;
-        for(String s : copy) {
-            sum = sum + Math.log10(prScore(s));
+    private static String withMotif(Chain chain, int seq) {
+        SequenceStore s = chain.S();
+        int z = chain.Z()[seq];
+        int l = chain.l();
+        if(z < 0) { // withdrawn sequence has no motif
+            return s.decode(seq, 0, s.length(seq), false);
         }
-        return (double)sum;
+        return s.decode(seq, 0, z, false) + s.decode(seq, z, z + l, true)
+                + s.decode(seq, z + l, s.length(seq), false);
     }
     
     /**
-     * Computes the PR(Z|theta) / PR(Z|theta_zero)
-     * @param x the string with uppercased motif candidate
-     * @return the probability the motif is not in background quotient
+     * prints some spaces in one line
+     * @param numS the number of spaces to be printed
      */
-    protected static double prScore(String x) {
-        int l = Gibbs_Sampler.l;
-        int j = 0;
-        double score = 1.0;
-        double den = Gibbs_Sampler.THETA_0_ATCG[0]*Gibbs_Sampler.THETA_0_ATCG[1]*Gibbs_Sampler.THETA_0_ATCG[2]*Gibbs_Sampler.THETA_0_ATCG[3];
-        while(j < l) { // for every motif letter
-            for(int i = 0; i < x.length(); i++) { // for every letter in x
-                if(x.charAt(i) == 'A'||x.charAt(i) == 'T'||x.charAt(i) == 'C'||x.charAt(i) == 'G') { // if its motif candidate
-                    if(x.charAt(i+j) == 'A') {
-                        score = score * Gibbs_Sampler.THETA_ATCG[0][j];
-                        break; // next character
-                    } else if(x.charAt(i+j) == 'T') {
-                        score = score * Gibbs_Sampler.THETA_ATCG[1][j];
-                        break; // next character
-                    } else if(x.charAt(i+j) == 'C') {
-                        score = score * Gibbs_Sampler.THETA_ATCG[2][j];
-                        break; // next character
-                    } else if(x.charAt(i+j) == 'G') {
-                        score = score * Gibbs_Sampler.THETA_ATCG[3][j];
-                        break; // next character
-                    }
-                }
-            }
-            j++;
+    private static void printSpaces(int numS) {
+        for(int i = 0; i < numS; i++) {
+            System.out.print(" ");
         }
-        return (double)((double)score/(double)den);
     }
     
     /**
      * prints the theta zero
+     * @param chain the chain holding the background
      */
-    protected static void printThetaZero(){System.out.println("Theta Zero: ");for(double i:Gibbs_Sampler.THETA_0_ATCG){System.out.print(i + ", ");}System.out.println();}
-    
-    /**
-     * Generates the theta zero for the background
-     */
-    protected static void getThetaZero() {
-        double[] copy = Gibbs_Sampler.THETA_0_ATCG;
-        int count_a = 0;
-        int count_t = 0;
-        int count_c = 0;
-        int count_g = 0;
-        int count = 0;
-        for(String s : Gibbs_Sampler.S) { // for every s
-            for(int i = 0; i < s.length(); i++) { // for every char
-                if(s.charAt(i) == 'a') {
-                    count_a++;
-                    count++;
-                } else if(s.charAt(i) == 't') {
-                    count_t++;
-                    count++;
-                } else if(s.charAt(i) == 'c') {
-                    count_c++;
-                    count++;
-                } else if(s.charAt(i) == 'g') {
-                    count_g++;
-                    count++;
-                }
-            }
-        }
-        copy[0] = (double)count_a/(double)count;
-        copy[1] = (double)count_t/(double)count;
-        copy[2] = (double)count_c/(double)count;
-        copy[3] = (double)count_g/(double)count;
-        Gibbs_Sampler.THETA_0_ATCG = copy;
-    }
+    protected static void printThetaZero(Chain chain){System.out.println("Theta Zero: ");for(double i:chain.getThetaZero()){System.out.print(i + ", ");}System.out.println();}
     
     /**
      * print theta
+     * @param chain the chain holding the motifs
      */
-    protected static void printTheta(){System.out.println("Theta: ");for(int i=0;i<Gibbs_Sampler.THETA_ATCG.length;i++){for(int j=0;j<Gibbs_Sampler.THETA_ATCG[0].length;j++){System.out.print(" |"+Gibbs_Sampler.THETA_ATCG[i][j]);}System.out.println();}}
-    
-    /**
-     * Loads the theta for the proposed motif in Gibbs Sampler Application
-     */
-    protected static void getTheta() {
-        int l = Gibbs_Sampler.l;
-        int countA = 0;
-        int countT = 0;
-        int countC = 0;
-        int countG = 0;
-        double[][] thetaATCG = new double[4][l];
-        int j = 0;
-        while(j < l) // for every motif char
-        {
-        for(String s : Gibbs_Sampler.S) { // for every s
-            for(int i = 0; i < s.length(); i++) { // for every letter
-                if(s.charAt(i) == 'A'||s.charAt(i) == 'T'||s.charAt(i) == 'C'||s.charAt(i) == 'G')
-                {
-                if(s.charAt(i + j) == 'A') {
-                    countA++;
-                    break;
-                } else if(s.charAt(i + j) == 'T') {
-                    countT++;
-                    break;
-                } else if(s.charAt(i + j) == 'C') {
-                    countC++;
-                    break;
-                } else if(s.charAt(i + j) == 'G') {
-                    countG++;
-                    break;
-                }
-                }
-            }
-        }
-        thetaATCG[0][j] = (double)countA/Gibbs_Sampler.S.size();
-        countA = 0;
-        thetaATCG[1][j] = (double)countT/Gibbs_Sampler.S.size();
-        countT = 0;
-        thetaATCG[2][j] = (double)countC/Gibbs_Sampler.S.size();
-        countC = 0;
-        thetaATCG[3][j] = (double)countG/Gibbs_Sampler.S.size();
-        countG = 0;
-        j++;
-        }
-        Gibbs_Sampler.THETA_ATCG = thetaATCG;
-    }
+    protected static void printTheta(Chain chain){System.out.println("Theta: ");double[][] t=chain.getTheta();for(int i=0;i<t.length;i++){for(int j=0;j<t[0].length;j++){System.out.print(" |"+t[i][j]);}System.out.println();}}
     
     /**
      * print S from Gibbs Sampler for debug purposes
+     * @param chain the chain holding the motifs
      */
-    protected static void printS(){System.out.println("S: ");Gibbs_Sampler.S.forEach((s)->{System.out.println(s);});}
-    
-    /**
-     * uppercases a random Z big (set of motifs) in S set of string that
-     * is obtained in Gibbs_Sampler application
-     */
-    protected static void uppercaseRnadZ() {
-        int l = Gibbs_Sampler.l;
-        List<String> copy = Gibbs_Sampler.S;
-        List<String> Z = new ArrayList();
-        for(String s : copy) {
-            int randStart = getRandMotifPos(s); // randon z little statrt pos
-            String begin = s.substring(0, randStart);
-            String motif = s.substring(randStart, randStart + l).toUpperCase();
-            String rest = "";
-            if(randStart + l != s.length()) { // if the motif is not the end ofo s
-                rest = s.substring(randStart + l, s.length());
-            }
-            Z.add(begin + motif + rest);
-        }
-        Gibbs_Sampler.S = Z;
-    }
-    
-    /**
-     * get a random start position for a length l motif
-     * l is obtained from Gibbs Sampler application
-     * @param S the string to generate start position for a motif
-     * @return the random motif start position
-     */
-    private static int getRandMotifPos(String S) {
-        int motifL = Gibbs_Sampler.l;
-        int maxStart = S.length() - motifL; // maximum start position
-        int startPos = randInt(0, maxStart);
-        return startPos;
-    }
-    
-    /**
-     * Generates a random number in a specified range (including both extremes)
-     * @param min the min value desired (including)
-     * @param max the max value desired (including)
-     * @return 
-     */
-    protected static int randInt(int min, int max) {
-        Random random = new Random();
-        int rand;
-        rand = random.nextInt(max - min + 1) + min;
-        return rand;
-    }
+    protected static void printS(Chain chain){System.out.println("S: ");for(int i=0;i<chain.S().size();i++){System.out.println(withMotif(chain, i));}}
     
     /**
     * Interacts with the user until the user enters a positive non zero integer
@@ -375,36 +196,22 @@ public class Gibbs {
     }
     
     /**
-     * Loads a file specified by the user into the S set of strings
-     * in the Gibbs_Sampler application.  Lower cases everything!
+     * Loads a file specified by the user into the S set of sequences
+     * in the Gibbs_Sampler application.  FASTA, or one sequence per line
+     * of plain text.  Case is ignored
      * @param prompt the specific file prompt
      */
     protected static void getS(String prompt) {
-        List<String> user = new ArrayList();
-        Scanner inputStream = promptFile(prompt);
-        while(inputStream.hasNextLine()) {
-            user.add(inputStream.nextLine().trim().toLowerCase());
-        }
-        Gibbs_Sampler.S = user;
-    }
-    
-    /**
-    * upon user input this method tries to find an existing file
-    * to write to.  If fails, prompts again until existing file
-    * name received
-    * @param prompt the specific file asked for
-    * @return Scanner object ready to scan from existing file
-    */
-    private static Scanner promptFile(String prompt) {
         //promt user for existing file only
         while(true) {
             try {
                 System.out.print(prompt);
                 Scanner console = new Scanner(System.in);
                 String inputFileName = console.next();
-                return new Scanner(new FileInputStream(inputFileName));
+                Gibbs_Sampler.S = GibbsSampler.load(inputFileName);
+                return;
             }
-            catch (FileNotFoundException ex) {
+            catch (IOException ex) {
                 System.out.println("File does not exist.  Enter existing file.  Error "+ ex.getLocalizedMessage());
             }
         }
@@ -0,0 +1,701 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: The Gibbs Sampler as a library.  A GibbsSampler is made from a
+ * Config, runs on a set of sequences and hands back a Result; nothing is read
+ * from the console and nothing is static, so one JVM can run any number of
+ * jobs.  main drives it from command line flags for scripted runs.
+ */
+package gibbs_sampler;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+
+public class GibbsSampler {
+
+    private final Config config;
+
+    /**
+     * @param config the run parameters, copied so later changes do not leak in
+     */
+    public GibbsSampler(Config config) {
+        if(config.l <= 0) {
+            throw new IllegalArgumentException("A motif length greater than zero is required");
+        }
+        if(config.chains <= 0) {
+            throw new IllegalArgumentException("At least one chain is required");
+        }
+        if(config.replicas > 1 && !(config.maxTemperature > 1)) {
+            throw new IllegalArgumentException("Replica exchange needs a top temperature above 1");
+        }
+        if(config.shiftEvery < 0 || config.shiftRadius < 0) {
+            throw new IllegalArgumentException("Phase shift schedule and radius cannot be negative");
+        }
+        if(config.seedK < 0 || config.seedK > KmerIndex.MAX_K) {
+            throw new IllegalArgumentException("Seed k-mer length must be between 0 and " + KmerIndex.MAX_K);
+        }
+        if(config.checkpointDir != null && (config.replicas > 1 || config.checkpointEvery <= 0)) {
+            throw new IllegalArgumentException("Checkpoints need a positive number of sweeps and no replica exchange");
+        }
+        if(config.resume && config.checkpointDir == null) {
+            throw new IllegalArgumentException("Resuming needs the checkpoint directory");
+        }
+        if(config.metricsEvery < 0) {
+            throw new IllegalArgumentException("Metric reports cannot be a negative number of sweeps apart");
+        }
+        if(config.backgroundOrder > Background.MAX_ORDER) {
+            throw new IllegalArgumentException("Background order must be at most " + Background.MAX_ORDER);
+        }
+        if(!config.convergence.any()) {
+            throw new IllegalArgumentException("At least one convergence rule is required");
+        }
+        this.config = config.copy();
+    }
+
+    /**
+     * Runs the configured chains on a set of sequences and writes the motifs of
+     * the best one to the output sink, if there is one
+     * @param S the set of sequences
+     * @return the result of the run
+     */
+    public Result run(SequenceStore S) {
+        return run(S, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs the configured chains on a pool of its own, see BatchRunner
+     * @param S the set of sequences
+     * @param pool the pool the chains run on
+     * @return the result of the run
+     */
+    public Result run(SequenceStore S, ForkJoinPool pool) {
+        if(S.size() == 0) {
+            throw new IllegalArgumentException("No sequences");
+        }
+        for(int i = 0; i < S.size(); i++) {
+            if(Chain.cleanWindows(S, i, config.l) == 0) {
+                throw new IllegalArgumentException("Sequence " + (S.id(i) == null ? String.valueOf(i) : S.id(i))
+                        + " has no window of " + config.l + " nucleotides without N");
+            }
+        }
+        Config config = this.config;
+        if(config.background == null && config.backgroundOrder >= 0) { // estimated once for every chain
+            config = config.copy().background(Background.of(S, config.backgroundOrder));
+        }
+        Rng rng = new Rng(config.seed);
+        List<Chain> ranked = MultiChain.best(S, config, rng, config.chains, pool); // checkpoints written
+        Result result = new Result(config.seed, config.convergence, ranked);
+        if(config.output != null) {
+            Gibbs.writeMotifToFile(result.best(), config.output);
+            config.output.flush();
+        }
+        return result;
+    }
+
+    /**
+     * Loads a FASTA file, gzipped or not, or else a plain text file
+     * @param path the file to read
+     * @return the set of sequences
+     * @throws IOException when the file cannot be read
+     */
+    public static SequenceStore load(String path) throws IOException {
+        return load(path, 0, 1);
+    }
+
+    /**
+     * Loads one shard of a FASTA or plain text file, every shards-th
+     * sequence from shard on, without holding the others
+     * @param path the file to read
+     * @param shard the shard, from 0
+     * @param shards the number of shards
+     * @return the sequences of the shard
+     * @throws IOException when the file cannot be read
+     */
+    public static SequenceStore load(String path, int shard, int shards) throws IOException {
+        Path file = Paths.get(path);
+        return FastaReader.isFasta(file) ? FastaReader.read(file, shard, shards) : readLines(path, shard, shards);
+    }
+
+    /**
+     * Loads a plain text file with one sequence per line.  Case is ignored
+     * @param path the file to read
+     * @return the set of sequences
+     * @throws IOException when the file cannot be read
+     */
+    public static SequenceStore readLines(String path) throws IOException {
+        return readLines(path, 0, 1);
+    }
+
+    /**
+     * Loads one shard of a plain text file with one sequence per line, the
+     * lines that are not blank counted as the store counts sequences
+     * @param path the file to read
+     * @param shard the shard, from 0
+     * @param shards the number of shards
+     * @return the sequences of the shard
+     * @throws IOException when the file cannot be read
+     */
+    private static SequenceStore readLines(String path, int shard, int shards) throws IOException {
+        SequenceStore.Builder S = new SequenceStore.Builder();
+        int records = 0;
+        try(Scanner in = new Scanner(new FileInputStream(path), "UTF-8")) {
+            while(in.hasNextLine()) {
+                String line = in.nextLine().trim();
+                if(!line.isEmpty() && records++ % shards == shard) {
+                    S.append(line);
+                    S.endSequence();
+                }
+            }
+        }
+        return S.build();
+    }
+
+    /**
+     * Parameters of a run.  Setters return the config so they can be chained
+     */
+    public static class Config {
+        int l; // Length of z - little (one motif)
+        long seed = System.nanoTime();
+        int chains = 1; // random restarts, run in parallel
+        Convergence convergence = new Convergence(); // when chains stop
+        int replicas = 1; // temperatures per chain, more than one for replica exchange
+        double maxTemperature = 4;
+        int shiftEvery; // sweeps between phase shift moves, 0 for none
+        int shiftRadius = 3; // largest phase shift tried
+        int seedK; // k-mer length chains start on, 0 for random starts
+        Background background; // fixed theta zero, null for the letters outside the motifs
+        int backgroundOrder = -1; // order of the Background made per run, -1 for none
+        boolean bothStrands; // motifs on the reverse strand too
+        Path checkpointDir; // where chains are saved, null for nowhere
+        int checkpointEvery = 10; // sweeps between saves
+        boolean resume; // go on from the saved chains in checkpointDir
+        int metricsEvery; // sweeps between loop metric reports, 0 for no metrics
+        PrintWriter progress; // where the metric reports go as JSON lines, none if null
+        String job; // names the run in the metric reports, null for none
+        PrintWriter output; // where the motifs of the best chain go, none if null
+
+        public Config motifLength(int l) { this.l = l; return this; }
+        public Config seed(long seed) { this.seed = seed; return this; }
+        public Config chains(int chains) { this.chains = chains; return this; }
+        public Config convergence(Convergence convergence) { this.convergence = convergence; return this; }
+        public Config tempering(int replicas, double maxTemperature) { this.replicas = replicas; this.maxTemperature = maxTemperature; return this; }
+        public Config phaseShifts(int everySweeps, int radius) { this.shiftEvery = everySweeps; this.shiftRadius = radius; return this; }
+        public Config seeding(int k) { this.seedK = k; return this; }
+        public Config background(Background background) { this.background = background; return this; }
+        public Config backgroundOrder(int order) { this.backgroundOrder = order; return this; }
+        public Config bothStrands(boolean bothStrands) { this.bothStrands = bothStrands; return this; }
+        public Config checkpoints(Path dir, int everySweeps) { this.checkpointDir = dir; this.checkpointEvery = everySweeps; return this; }
+        public Config resume(boolean resume) { this.resume = resume; return this; }
+        public Config metrics(int everySweeps, PrintWriter progress) { this.metricsEvery = everySweeps; this.progress = progress; return this; }
+        public Config job(String job) { this.job = job; return this; }
+        public Config output(PrintWriter output) { this.output = output; return this; }
+
+        /**
+         * @return a config with the same values
+         */
+        Config copy() {
+            return new Config().motifLength(l).seed(seed).chains(chains)
+                    .convergence(convergence.copy()).tempering(replicas, maxTemperature)
+                    .phaseShifts(shiftEvery, shiftRadius).seeding(seedK).background(background).backgroundOrder(backgroundOrder).bothStrands(bothStrands)
+                    .checkpoints(checkpointDir, checkpointEvery).resume(resume)
+                    .metrics(metricsEvery, progress).job(job).output(output);
+        }
+
+        /**
+         * Starts a chain with the moves of this config
+         * @param S the set of sequences
+         * @param rng the random numbers of the chain only
+         * @param restart which restart the chain is, seeded chains start on
+         * the k-mer of that rank so restarts begin apart
+         * @return the new chain
+         */
+        Chain chain(SequenceStore S, Rng rng, int restart) {
+            int[] start = seedK > 0 ? KmerIndex.of(S).seed(l, seedK, restart, rng) : null;
+            return chain(S, rng, restart, start, null);
+        }
+
+        /**
+         * Starts a chain with the moves of this config from given motifs
+         * @param S the set of sequences
+         * @param rng the random numbers of the chain only
+         * @param restart which restart the chain is, for its metrics
+         * @param start the motif start in each sequence, null for random ones
+         * @param strands whether each motif is on the reverse strand, null for none
+         * @return the new chain
+         */
+        Chain chain(SequenceStore S, Rng rng, int restart, int[] start, boolean[] strands) {
+            Chain chain = new Chain(S, l, rng, start, strands, background).bothStrands(bothStrands);
+            if(metricsEvery > 0) {
+                chain.metrics(new Metrics(job, restart, metricsEvery, S.size(), progress));
+            }
+            if(shiftEvery > 0) {
+                chain.phaseShifts(shiftEvery, shiftRadius);
+            }
+            return chain;
+        }
+    }
+
+    /**
+     * What a run found: every chain ranked by log score, best first
+     */
+    public static class Result {
+        private final long seed;
+        private final Convergence convergence;
+        private final List<Chain> ranked;
+
+        Result(long seed, Convergence convergence, List<Chain> ranked) {
+            this.seed = seed;
+            this.convergence = convergence;
+            this.ranked = ranked;
+        }
+
+        /** @return the seed the run used, to repeat it */
+        public long seed() { return seed; }
+
+        /** @return the stop rules the run used */
+        public Convergence convergence() { return convergence; }
+
+        /** @return the rule that stopped the best chain */
+        public Convergence.Reason reason() { return best().stopped(); }
+
+        /** @return the iterations of the best chain */
+        public long iterations() { return best().iterations(); }
+
+        /** @return the iterations of every chain together, every replica of each included */
+        public long totalIterations() {
+            long total = 0;
+            for(Chain c : ranked) {
+                total += c.totalIterations();
+            }
+            return total;
+        }
+
+        /** @return the chains, best log score first */
+        public List<Chain> chains() { return ranked; }
+
+        /** @return the chain with the best log score */
+        public Chain best() { return ranked.get(0); }
+
+        /** @return the log score of the best chain */
+        public double score() { return best().score(); }
+
+        /** @return the bits per motif column of the best chain */
+        public double information() { return best().information(); }
+
+        /** @return the evidence in bits of the best chain, comparable between motif lengths */
+        public double evidence() { return best().evidence(); }
+
+        /** @return the motif length */
+        public int l() { return best().l(); }
+
+        /**
+         * @return the consensus motif of the best chain
+         */
+        public String consensus() {
+            double[][] theta = best().getTheta();
+            char[] out = new char[theta[0].length];
+            for(int j = 0; j < out.length; j++) {
+                int top = 0;
+                for(int b = 1; b < 4; b++) {
+                    if(theta[b][j] > theta[top][j]) {
+                        top = b;
+                    }
+                }
+                out[j] = Character.toUpperCase(SequenceStore.decode((byte)top));
+            }
+            return new String(out);
+        }
+    }
+
+    /**
+     * Prints how to call main
+     */
+    private static void usage() {
+        System.err.println("usage: GibbsSampler -i <sequences> -l <motif length> [-seed <n>] [-chains <n>]");
+        System.err.println("                    [-tempering <replicas> <top temperature>]");
+        System.err.println("                    [-shift <sweeps> <radius>] [-kmer <k>] [-strands <1|2>]");
+        System.err.println("                    [-background <order>] [-checkpoint <dir> <sweeps>] [-resume <dir>]");
+        System.err.println("                    [-metrics <sweeps>] [-progress <file or ->]");
+        System.err.println("                    [-o <output file>] [stop rules]");
+        System.err.println("       GibbsSampler -i <sequences> -lengths <shortest> <longest> [same options]");
+        System.err.println("       GibbsSampler -pwm <matrix file> -scan <fasta> [-hits <file>]");
+        System.err.println("                    [-threshold <log-odds> | -pvalue <p>] [-top <k>]");
+        System.err.println("       GibbsSampler -i <sequences> -l <motif length> -distributed <workers,...>");
+        System.err.println("                    | -coordinator <port> <workers> [-seed <n>] [-strands <1|2>]");
+        System.err.println("                    [-o <output file>] [stop rules]");
+        System.err.println("       GibbsSampler -worker <host:port>");
+        System.err.println("       GibbsSampler -batch <manifest or dir> -out <dir> [-jobs <n>] [same options]");
+        System.err.println("  -tempering runs each chain as replicas at temperatures from 1 to the top one,");
+        System.err.println("  swapping between neighbours after every sweep; the cold replica is reported,");
+        System.err.println("  its iterations are the ones stop rules count, checked after each sweep");
+        System.err.println("  -shift <sweeps> <radius> every that many sweeps, tries moving all motifs by");
+        System.err.println("  up to radius letters together and draws a shift by its score");
+        System.err.println("  -kmer <k> starts each chain on the best matches of an over-represented k-mer,");
+        System.err.println("  the n-th chain on the n-th most over-represented one, instead of at random");
+        System.err.println("  -strands 2 also looks for motifs on the reverse strand, the strand follows");
+        System.err.println("  each motif in the output as + or -");
+        System.err.println("  -background <order> scores against a Markov background of S of that order,");
+        System.err.println("  0 for letter frequencies, instead of the letters outside the motifs");
+        System.err.println("  -checkpoint saves every chain to dir every that many sweeps, -resume goes on");
+        System.err.println("  from the chains saved there, exactly as if the run had not stopped");
+        System.err.println("  -metrics times the sampler loop and sends Flight Recorder events every that");
+        System.err.println("  many sweeps; -progress writes them as JSON lines too, - for stderr");
+        System.err.println("  -lengths runs every motif length in the range at once against one background,");
+        System.err.println("  order 0 unless -background, and ranks them by the log-likelihood ratio less a");
+        System.err.println("  charge per column (BIC); the motifs of the top one are written");
+        System.err.println("  -pwm <file> saves the matrix of the motifs found, or loads one for -scan alone");
+        System.err.println("  -scan <fasta> scans a genome with that matrix on both strands and writes a");
+        System.err.println("  line per hit to -hits <file> or stdout: name, start, strand, score and site.");
+        System.err.println("  Hits score at least -threshold <log-odds> or the score of -pvalue <p>,");
+        System.err.println("  default 1e-4; -top <k> keeps only the best k");
+        System.err.println("  -distributed splits S over that many worker JVMs on this machine, which send");
+        System.err.println("  the change of their counts after every sweep; with a list, e.g. 1,2,4, runs");
+        System.err.println("  once per count and reports the speedup and efficiency of each. -coordinator");
+        System.err.println("  waits for workers started elsewhere with -worker; they read -i themselves.");
+        System.err.println("  Stop rules are checked once a sweep. One chain spans the workers and starts at");
+        System.err.println("  random, so -background, -tempering, -shift, -checkpoint, -chains, -kmer,");
+        System.err.println("  -metrics and -progress are refused.");
+        System.err.println("  -batch runs every file of dir, or every line of the manifest, a path and an");
+        System.err.println("  optional motif length after a tab; the motifs of each go to <out>/<name>.motifs");
+        System.err.println("  and a line per job to <out>/summary.tsv; -jobs sampling threads, one per core");
+        System.err.println("stop rules, the first one met ends a chain (default -stall 20):");
+        System.err.println("  -stable <n>            integer part of the log score unchanged n iterations in a row");
+        System.err.println("  -tolerance <r> <n>     relative score change at most r over n iterations");
+        System.err.println("  -patience <n>          n iterations without a better score");
+        System.err.println("  -stall <n>             n sweeps without a better score, 0 for off");
+        System.err.println("  -iterations <n>        at most n iterations");
+        System.err.println("  -sweeps <n>            at most n sweeps, one sweep is |S| iterations");
+        System.err.println("  -time <seconds>        at most this wall clock time per chain");
+        System.err.println("  sequences are FASTA (.gz too) or plain text with one sequence per line");
+        System.err.println("  the motifs of the best chain go to the output file, or to stdout without -o");
+    }
+
+    /**
+     * Saves the matrix of the motifs a run found and scans a genome with it,
+     * each if asked for
+     * @param best the best chain of the run
+     * @param pwm the matrix file to write, null for none
+     * @param genome the FASTA file to scan, null for none
+     * @param hits the file for the hits, null for stdout
+     * @param threshold see scan
+     * @param pvalue see scan
+     * @param top see scan
+     * @throws IOException when a file cannot be read or written
+     */
+    private static void found(Chain best, String pwm, String genome, String hits, double threshold,
+            double pvalue, int top) throws IOException {
+        PwmScanner.Pwm matrix = PwmScanner.Pwm.of(best);
+        if(pwm != null) {
+            matrix.save(Paths.get(pwm));
+        }
+        if(genome != null) {
+            scan(matrix, genome, hits, null, threshold, pvalue, top);
+        }
+    }
+
+    /**
+     * Scans a genome and reports how it went
+     * @param pwm the matrix
+     * @param genome the FASTA file
+     * @param hits the file for the hits, null for out
+     * @param out where hits go without a file, null for stdout
+     * @param threshold the lowest score of a hit, NaN to use the p-value
+     * @param pvalue the p-value of the lowest score, NaN for 1e-4 unless top
+     * @param top keep only the best this many hits, 0 for all
+     * @throws IOException when a file cannot be read or written
+     */
+    private static void scan(PwmScanner.Pwm pwm, String genome, String hits, PrintWriter out, double threshold,
+            double pvalue, int top) throws IOException {
+        if(Double.isNaN(threshold)) { // only the best ones when -top alone
+            threshold = !Double.isNaN(pvalue) ? pwm.threshold(pvalue)
+                    : top > 0 ? Double.NEGATIVE_INFINITY : pwm.threshold(PwmScanner.DEFAULT_PVALUE);
+        }
+        long started = System.nanoTime();
+        long found;
+        if(hits == null) {
+            found = new PwmScanner(pwm, threshold, top).scan(Paths.get(genome), out != null ? out
+                    : new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        } else {
+            try(PrintWriter file = new PrintWriter(hits, "UTF-8")) {
+                found = new PwmScanner(pwm, threshold, top).scan(Paths.get(genome), file);
+            }
+        }
+        System.err.println(String.format(Locale.ROOT, "Scan: %d hits on both strands, %s, in %.1f s", found,
+                threshold == Double.NEGATIVE_INFINITY ? "the best " + top
+                : String.format(Locale.ROOT, "scoring at least %.3f of %.3f at most", threshold, pwm.maxScore()),
+                (System.nanoTime() - started) / 1e9));
+    }
+
+    /**
+     * Runs distributed, once per worker count, and reports how the sweep rate
+     * scales from the first count on.  The motifs of the last run are written
+     * @param input the sequence file
+     * @param config the run parameters
+     * @param workers the worker counts
+     * @param port where to wait for remote workers, -1 to start local ones
+     * @param out where the motifs go
+     * @throws IOException when a worker fails
+     */
+    private static void distribute(String input, Config config, int[] workers, int port, PrintWriter out)
+            throws IOException {
+        Distributed.Result first = null;
+        Distributed.Result last = null;
+        for(int n : workers) {
+            if(port >= 0) {
+                try(ServerSocket server = new ServerSocket(port)) {
+                    System.err.println("Waiting for " + n + " workers on port " + server.getLocalPort());
+                    last = Distributed.coordinate(server, input, config, n);
+                }
+            } else {
+                last = Distributed.local(input, config, n);
+            }
+            first = first == null ? last : first;
+            double speedup = last.sweepsPerSecond() / first.sweepsPerSecond();
+            System.err.println(String.format(Locale.ROOT, "Workers: %d Log score: %.4f Stopped by: %s after %d"
+                    + " sweeps in %.2f s, %.2f sweeps/s, speedup %.2f, efficiency %.0f%%, %.0f%% exchanging",
+                    n, last.score(), last.reason(), last.sweeps(), last.seconds(), last.sweepsPerSecond(),
+                    speedup, 100 * speedup * first.workers() / n, 100 * last.exchange()));
+        }
+        System.err.println("Seed: " + config.seed + ", " + Runtime.getRuntime().availableProcessors()
+                + " processors here");
+        for(String line : last.motifs()) {
+            out.println(line);
+        }
+    }
+
+    /**
+     * Runs the sampler from command line flags without asking anything
+     * @param args the flags, see usage
+     */
+    public static void main(String[] args) {
+        Config config = new Config();
+        String input = null;
+        String output = null;
+        String progress = null;
+        String batch = null;
+        String outDir = null;
+        int jobs = 0; // sampling threads of a batch, 0 for one per core
+        String pwm = null;
+        String genome = null;
+        String hits = null;
+        double threshold = Double.NaN;
+        double pvalue = Double.NaN;
+        int top = 0;
+        String worker = null; // host:port of the coordinator
+        int[] distributed = null; // worker counts of local runs, one run each
+        int coordinatorPort = -1;
+        int shortest = 0; // a length sweep when not 0
+        int longest = 0;
+        try {
+            for(int i = 0; i < args.length; i++) {
+                String flag = args[i];
+                if(i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + flag);
+                }
+                String value = args[++i];
+                Convergence stop = config.convergence;
+                switch(flag) {
+                    case "-i": input = value; break;
+                    case "-l": config.motifLength(Integer.parseInt(value)); break;
+                    case "-seed": config.seed(Long.parseLong(value)); break;
+                    case "-chains": config.chains(Integer.parseInt(value)); break;
+                    case "-stable": stop.stable(Integer.parseInt(value)); break;
+                    case "-tolerance":
+                        if(i + 1 == args.length) {
+                            throw new IllegalArgumentException("Missing window for -tolerance");
+                        }
+                        stop.tolerance(Double.parseDouble(value), Integer.parseInt(args[++i]));
+                        break;
+                    case "-tempering":
+                        if(i + 1 == args.length) {
+                            throw new IllegalArgumentException("Missing top temperature for -tempering");
+                        }
+                        config.tempering(Integer.parseInt(value), Double.parseDouble(args[++i]));
+                        break;
+                    case "-shift":
+                        if(i + 1 == args.length) {
+                            throw new IllegalArgumentException("Missing radius for -shift");
+                        }
+                        config.phaseShifts(Integer.parseInt(value), Integer.parseInt(args[++i]));
+                        break;
+                    case "-lengths":
+                        if(i + 1 == args.length) {
+                            throw new IllegalArgumentException("Missing longest length for -lengths");
+                        }
+                        shortest = Integer.parseInt(value);
+                        longest = Integer.parseInt(args[++i]);
+                        config.motifLength(shortest);
+                        break;
+                    case "-strands":
+                        if(!value.equals("1") && !value.equals("2")) {
+                            throw new IllegalArgumentException("-strands takes 1 or 2");
+                        }
+                        config.bothStrands(value.equals("2"));
+                        break;
+                    case "-checkpoint":
+                        if(i + 1 == args.length) {
+                            throw new IllegalArgumentException("Missing sweeps for -checkpoint");
+                        }
+                        config.checkpoints(Paths.get(value), Integer.parseInt(args[++i]));
+                        break;
+                    case "-resume":
+                        config.checkpoints(Paths.get(value), config.checkpointEvery).resume(true);
+                        break;
+                    case "-metrics": config.metrics(Integer.parseInt(value), config.progress); break;
+                    case "-progress": progress = value; break;
+                    case "-background": config.backgroundOrder(Integer.parseInt(value)); break;
+                    case "-kmer": config.seeding(Integer.parseInt(value)); break;
+                    case "-patience": stop.patience(Long.parseLong(value)); break;
+                    case "-stall": stop.stall(Long.parseLong(value)); break;
+                    case "-iterations": stop.maxIterations(Long.parseLong(value)); break;
+                    case "-sweeps": stop.maxSweeps(Long.parseLong(value)); break;
+                    case "-time": stop.budgetMillis((long)(Double.parseDouble(value) * 1000)); break;
+                    case "-o": output = value; break;
+                    case "-batch": batch = value; break;
+                    case "-out": outDir = value; break;
+                    case "-jobs": jobs = Integer.parseInt(value); break;
+                    case "-pwm": pwm = value; break;
+                    case "-scan": genome = value; break;
+                    case "-hits": hits = value; break;
+                    case "-threshold": threshold = Double.parseDouble(value); break;
+                    case "-pvalue": pvalue = Double.parseDouble(value); break;
+                    case "-top": top = Integer.parseInt(value); break;
+                    case "-worker": worker = value; break;
+                    case "-distributed":
+                        String[] counts = value.split(",");
+                        distributed = new int[counts.length];
+                        for(int k = 0; k < counts.length; k++) {
+                            distributed[k] = Integer.parseInt(counts[k].trim());
+                        }
+                        break;
+                    case "-coordinator":
+                        if(i + 1 == args.length) {
+                            throw new IllegalArgumentException("Missing workers for -coordinator");
+                        }
+                        coordinatorPort = Integer.parseInt(value);
+                        distributed = new int[] {Integer.parseInt(args[++i])};
+                        break;
+                    default: throw new IllegalArgumentException("Unknown flag " + flag);
+                }
+            }
+            if(worker != null) {
+                if(worker.lastIndexOf(':') < 0) {
+                    throw new IllegalArgumentException("-worker takes host:port");
+                }
+            } else if(batch != null) {
+                if(outDir == null || shortest > 0) {
+                    throw new IllegalArgumentException("-batch takes -out and no -lengths");
+                }
+            } else if(genome != null && input == null) {
+                if(pwm == null) {
+                    throw new IllegalArgumentException("-scan needs -i to find the matrix or -pwm to load it");
+                }
+            } else if(input == null || config.l <= 0) {
+                throw new IllegalArgumentException("-i and a positive -l or -lengths are required");
+            }
+            if(distributed != null && (shortest > 0 || batch != null || genome != null)) {
+                throw new IllegalArgumentException("-distributed and -coordinator take no -lengths, -batch or -scan");
+            }
+            if(genome != null && input != null && output == null && hits == null) {
+                throw new IllegalArgumentException("-scan after a run needs -o or -hits, not both on stdout");
+            }
+            if(!Double.isNaN(threshold) && !Double.isNaN(pvalue)) {
+                throw new IllegalArgumentException("-threshold and -pvalue cannot both be given");
+            }
+        } catch(IllegalArgumentException ex) { // NumberFormatException included
+            System.err.println(ex.getMessage());
+            usage();
+            System.exit(2);
+        }
+        try(PrintWriter out = output == null
+                ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : new PrintWriter(output, "UTF-8"); // overwrites an existing file
+                PrintWriter file = progress == null || progress.equals("-") ? null
+                : new PrintWriter(progress, "UTF-8")) {
+            PrintWriter stream = "-".equals(progress)
+                    ? new PrintWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8)) : file;
+            if(stream != null) { // reports every sweep unless -metrics says otherwise
+                config.metrics(config.metricsEvery > 0 ? config.metricsEvery : 1, stream);
+            }
+            if(worker != null) {
+                int colon = worker.lastIndexOf(':');
+                Distributed.work(worker.substring(0, colon), Integer.parseInt(worker.substring(colon + 1)));
+                return;
+            }
+            if(distributed != null) {
+                distribute(input, config, distributed, coordinatorPort, out);
+                return;
+            }
+            if(genome != null && input == null) {
+                scan(PwmScanner.Pwm.load(Paths.get(pwm)), genome, hits, out, threshold, pvalue, top);
+                return;
+            }
+            if(batch != null) {
+                List<BatchRunner.Job> all = BatchRunner.jobs(Paths.get(batch));
+                for(BatchRunner.Job job : all) {
+                    if(job.l <= 0 && config.l <= 0) {
+                        throw new IllegalArgumentException("No motif length for " + job.input + ", give -l");
+                    }
+                }
+                long started = System.nanoTime();
+                int failed = new BatchRunner(config, Paths.get(outDir), jobs).run(all);
+                System.err.println(String.format(Locale.ROOT, "Batch: %d of %d jobs done, %d failed in %.1f s, see %s",
+                        all.size() - failed, all.size(), failed, (System.nanoTime() - started) / 1e9,
+                        Paths.get(outDir, "summary.tsv")));
+                if(failed > 0) {
+                    System.exit(1);
+                }
+                return;
+            }
+            if(shortest > 0) {
+                List<Result> ranked = LengthSweep.run(load(input), config, shortest, longest);
+                for(Result r : ranked) {
+                    System.err.println(String.format(Locale.ROOT, "l=%d %s evidence %.2f bits, %.3f bits/column"
+                            + " log score %.2f, %s after %d iterations", r.l(), r.consensus(), r.evidence(),
+                            r.information(), r.score(), r.reason(), r.iterations()));
+                }
+                System.err.println("Repeat one length alone with the same flags, -l <length> instead of -lengths and"
+                        + " -seed " + config.seed + " -background " + Math.max(config.backgroundOrder, 0));
+                Gibbs.writeMotifToFile(ranked.get(0).best(), out);
+                out.flush();
+                found(ranked.get(0).best(), pwm, genome, hits, threshold, pvalue, top);
+                return;
+            }
+            Result result = new GibbsSampler(config.output(out)).run(load(input));
+            System.err.println("Seed: " + result.seed() + " Consensus: " + result.consensus()
+                    + " Log score: " + result.score());
+            System.err.println("Stop rules: " + result.convergence() + " Stopped by: " + result.reason()
+                    + " after " + result.iterations() + " iterations ("
+                    + String.format(Locale.ROOT, "%.1f", result.best().sweeps()) + " sweeps), "
+                    + result.totalIterations() + " iterations over all chains and replicas, "
+                    + ScoreKernel.backend() + " scoring");
+            if(config.shiftEvery > 0) {
+                System.err.println("Phase shifts: " + result.best().shiftsTaken() + " of "
+                        + result.best().shiftMoves() + " moves shifted the alignment");
+            }
+            if(result.best().metrics() != null) {
+                System.err.println("Sampler loop: " + result.best().metrics());
+            }
+            out.flush();
+            found(result.best(), pwm, genome, hits, threshold, pvalue, top);
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        } catch(IOException | UncheckedIOException | IllegalArgumentException ex) {
+            System.err.println("Cannot run: " + ex.getLocalizedMessage());
+            System.exit(1);
+        }
+    }
+}
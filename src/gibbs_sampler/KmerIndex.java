@@ -0,0 +1,276 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Counts every k-mer of a sequence store in an open addressing
+ * hash table keyed by the k-mer packed two bits a letter.  A k-mer counts once
+ * per sequence it is in, and its excess over the count expected from the
+ * letter frequencies ranks it.  Chains start with every motif on the best
+ * match of a top ranked k-mer instead of at random, each restart taking the
+ * next k-mer down the ranking.  Tables are built once per store and k, and
+ * kept on the store for any later run on it, so they go when the store goes.
+ */
+package gibbs_sampler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class KmerIndex {
+
+    protected static final int MAX_K = 31; // 62 bits of letters in a long
+
+    private static final long MAX_CAPACITY = 1L << 30; // slots, the largest power of two an array holds
+
+    private final SequenceStore S;
+    private final Map<Integer, Table> tables = new HashMap<>(); // by k
+
+    /**
+     * Made by SequenceStore.kmers only, one per store
+     * @param S the set of sequences
+     */
+    KmerIndex(SequenceStore S) {
+        this.S = S;
+    }
+
+    /**
+     * The index of a store, the same one for every run on that store
+     * @param S the set of sequences
+     * @return the index, tables are built when first asked for
+     */
+    public static KmerIndex of(SequenceStore S) {
+        return S.kmers();
+    }
+
+    /**
+     * The counts of every k-mer, built on the first call for each k
+     * @param k the k-mer length, 1 to MAX_K
+     * @return the table for k
+     */
+    public Table table(int k) {
+        if(k < 1 || k > MAX_K) {
+            throw new IllegalArgumentException("k must be between 1 and " + MAX_K);
+        }
+        synchronized(tables) {
+            return tables.computeIfAbsent(k, key -> new Table(S, key));
+        }
+    }
+
+    /**
+     * Motif starts for a chain: every sequence gets the window holding its
+     * closest match to one over-represented k-mer, in the middle of the window
+     * @param l the motif length
+     * @param k the k-mer length, at most l
+     * @param rank which k-mer down the ranking, 0 for the top one
+     * @param rng breaks ties between equally close matches
+     * @return the motif start in each sequence, -1 where no window fits
+     */
+    public int[] seed(int l, int k, int rank, Rng rng) {
+        Table table = table(Math.min(k, l));
+        k = table.k;
+        long[] top = table.top(rank + 1);
+        long kmer = top[Math.min(rank, top.length - 1)];
+        int offset = (l - k) / 2; // the k-mer sits in the middle of the window
+        long mask = (1L << (2 * k)) - 1;
+        int[] Z = new int[S.size()];
+        for(int i = 0; i < S.size(); i++) {
+            int best = Integer.MAX_VALUE;
+            int ties = 0;
+            int at = -1;
+            long packed = 0;
+            int run = 0; // letters since the last N
+            for(int p = 0; p < S.length(i); p++) {
+                byte c = S.code(i, p);
+                if(c == SequenceStore.N) {
+                    run = 0;
+                    continue;
+                }
+                packed = ((packed << 2) | c) & mask;
+                if(++run < k) {
+                    continue;
+                }
+                int start = p - k + 1 - offset;
+                if(start < 0 || start > S.length(i) - l || !S.clean(i, start, l)) {
+                    continue; // the window around it does not fit
+                }
+                int d = distance(packed ^ kmer);
+                if(d < best) {
+                    best = d;
+                    ties = 1;
+                    at = start;
+                } else if(d == best && rng.nextInt(++ties) == 0) { // uniform among ties
+                    at = start;
+                }
+            }
+            Z[i] = at;
+        }
+        return Z;
+    }
+
+    /**
+     * @param diff two packed k-mers xor-ed
+     * @return the number of letters that differ
+     */
+    private static int distance(long diff) {
+        return Long.bitCount((diff | (diff >>> 1)) & 0x5555555555555555L);
+    }
+
+    /**
+     * k-mer counts of one store for one k
+     */
+    public static class Table {
+        private final int k;
+        private final long[] keys; // packed k-mer + 1, 0 for an empty slot
+        private final int[] support; // sequences holding the k-mer
+        private final int[] last; // last sequence counted, to count each once
+        private final double[] frequency = new double[4]; // of each letter in S
+        private final double windows; // k-mer positions per sequence, on average
+        private final int sequences;
+        private int distinct;
+
+        private Table(SequenceStore S, int k) {
+            this.k = k;
+            this.sequences = S.size();
+            long total = 0;
+            int[] letters = new int[5];
+            for(int i = 0; i < S.totalLength(); i++) {
+                letters[S.codes()[i]]++;
+            }
+            for(int b = 0; b < 4; b++) {
+                total += letters[b];
+            }
+            for(int b = 0; b < 4; b++) {
+                frequency[b] = total == 0 ? 0.25 : (double)letters[b] / total;
+            }
+            long possible = Math.min(1L << Math.min(2 * k, 40), Math.max(S.totalLength(), 1));
+            long capacity = Long.highestOneBit(possible * 2 - 1) << 1; // at most half full
+            if(capacity > MAX_CAPACITY) {
+                throw new IllegalArgumentException("Too many possible " + k + "-mers in " + S.totalLength()
+                        + " letters for one table of " + MAX_CAPACITY + " slots, give a shorter -kmer");
+            }
+            keys = new long[(int)capacity];
+            support = new int[(int)capacity];
+            last = new int[(int)capacity];
+            long mask = (1L << (2 * k)) - 1;
+            for(int i = 0; i < S.size(); i++) {
+                long packed = 0;
+                int run = 0;
+                for(int p = 0; p < S.length(i); p++) {
+                    byte c = S.code(i, p);
+                    if(c == SequenceStore.N) {
+                        run = 0;
+                        continue;
+                    }
+                    packed = ((packed << 2) | c) & mask;
+                    if(++run >= k) {
+                        add(packed, i);
+                    }
+                }
+            }
+            windows = S.size() == 0 ? 0 : Math.max(0, (double)total / S.size() - k + 1);
+        }
+
+        /**
+         * Counts a k-mer for a sequence, once per sequence
+         * @param kmer the packed k-mer
+         * @param seq the sequence it is in
+         */
+        private void add(long kmer, int seq) {
+            int slot = slot(kmer);
+            if(keys[slot] == 0) {
+                keys[slot] = kmer + 1;
+                last[slot] = -1;
+                distinct++;
+            }
+            if(last[slot] != seq) {
+                last[slot] = seq;
+                support[slot]++;
+            }
+        }
+
+        /**
+         * Linear probing from the mixed hash of the k-mer
+         * @param kmer the packed k-mer
+         * @return its slot, or the empty slot it would go in
+         */
+        private int slot(long kmer) {
+            int mask = keys.length - 1;
+            int slot = (int)((kmer * 0x9E3779B97F4A7C15L) >>> 33) & mask;
+            while(keys[slot] != 0 && keys[slot] != kmer + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * @param kmer the packed k-mer
+         * @return how many sequences hold it
+         */
+        public int support(long kmer) {
+            return support[slot(kmer)];
+        }
+
+        /**
+         * How many more sequences hold the k-mer than its letters explain
+         * @param kmer the packed k-mer
+         * @param count the sequences holding it
+         * @return observed minus expected sequences
+         */
+        private double excess(long kmer, int count) {
+            double p = 1;
+            for(int j = 0; j < k; j++) {
+                p *= frequency[(int)(kmer >>> (2 * j)) & 3];
+            }
+            return count - sequences * -Math.expm1(-windows * p);
+        }
+
+        /**
+         * The most over-represented k-mers, best first
+         * @param n how many to keep
+         * @return at most n packed k-mers
+         */
+        public long[] top(int n) {
+            n = Math.max(1, Math.min(n, distinct));
+            long[] best = new long[n];
+            double[] excess = new double[n];
+            int kept = 0;
+            for(int slot = 0; slot < keys.length; slot++) {
+                if(keys[slot] == 0) {
+                    continue;
+                }
+                long kmer = keys[slot] - 1;
+                double e = excess(kmer, support[slot]);
+                if(kept == n && e <= excess[n - 1]) {
+                    continue;
+                }
+                int at = kept == n ? n - 1 : kept++;
+                while(at > 0 && excess[at - 1] < e) { // insertion into the sorted few
+                    best[at] = best[at - 1];
+                    excess[at] = excess[at - 1];
+                    at--;
+                }
+                best[at] = kmer;
+                excess[at] = e;
+            }
+            return kept == n ? best : Arrays.copyOf(best, kept);
+        }
+
+        /**
+         * @param kmer the packed k-mer
+         * @return the k-mer as upper case letters
+         */
+        public String decode(long kmer) {
+            char[] out = new char[k];
+            for(int j = 0; j < k; j++) {
+                out[k - 1 - j] = Character.toUpperCase(SequenceStore.decode((byte)((kmer >>> (2 * j)) & 3)));
+            }
+            return new String(out);
+        }
+
+        /** @return the k-mer length */
+        public int k() { return k; }
+
+        /** @return the number of different k-mers in the store */
+        public int distinct() { return distinct; }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Runs a range of motif lengths at once on one loaded set of
+ * sequences.  Every length shares the read only store, one Background counted
+ * once and the k-mer index, and runs its chains as in a single run with the
+ * same seed and that background, so any length can be repeated alone with -l
+ * and -background of the same order, 0 unless one was given.  The log score
+ * grows with l and the bits per column shrink with it, so lengths are ranked
+ * by the evidence instead, the log-likelihood ratio less a charge per column.
+ */
+package gibbs_sampler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class LengthSweep {
+
+    /**
+     * Runs every motif length from shortest to longest concurrently
+     * @param S the set of sequences, shared by every length
+     * @param config the run parameters, its motif length and output are ignored
+     * @param shortest the first motif length
+     * @param longest the last motif length (including)
+     * @return the result of each length, most evidence first
+     */
+    public static List<GibbsSampler.Result> run(SequenceStore S, GibbsSampler.Config config,
+            int shortest, int longest) {
+        if(shortest <= 0 || longest < shortest) {
+            throw new IllegalArgumentException("Motif lengths must run from a positive length up");
+        }
+        Background background = config.background != null ? config.background
+                : Background.of(S, Math.max(config.backgroundOrder, 0));
+        List<RecursiveTask<GibbsSampler.Result>> tasks = new ArrayList<>();
+        for(int l = shortest; l <= longest; l++) {
+            GibbsSampler.Config own = config.copy().motifLength(l).background(background).output(null);
+            if(config.checkpointDir != null) { // chains of each length saved apart
+                own.checkpoints(config.checkpointDir.resolve("l" + l), config.checkpointEvery);
+            }
+            GibbsSampler sampler = new GibbsSampler(own);
+            tasks.add(new RecursiveTask<GibbsSampler.Result>() {
+                @Override
+                protected GibbsSampler.Result compute() {
+                    return sampler.run(S); // its chains fork on this pool too
+                }
+            });
+        }
+        List<GibbsSampler.Result> done = ForkJoinPool.commonPool().invoke(
+                new RecursiveTask<List<GibbsSampler.Result>>() {
+            @Override
+            protected List<GibbsSampler.Result> compute() {
+                List<GibbsSampler.Result> out = new ArrayList<>();
+                for(RecursiveTask<GibbsSampler.Result> t : ForkJoinTask.invokeAll(tasks)) {
+                    out.add(t.join());
+                }
+                return out;
+            }
+        });
+        done.sort(Comparator.comparingDouble(GibbsSampler.Result::evidence).reversed());
+        return done;
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Instruments the sampler loop of one chain.  Every iteration
+ * adds the time it spent updating the profile, scoring windows and drawing
+ * the word, and whether the motif moved.  Every few sweeps the figures since
+ * the last report go out as a JDK Flight Recorder event and, when there is a
+ * progress stream, as one JSON line with the same fields; the event costs
+ * next to nothing when no recording runs.  Iterations are those of the chain
+ * so far, the interval those since the last report.  Under replica exchange
+ * every replica reports with the rung of the temperature it holds, and in a
+ * batch every line names its job.  Totals are kept for the end of the run.
+ * Not shared between chains.
+ */
+package gibbs_sampler;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+public class Metrics {
+
+    private final String job; // the run in a batch, null for none
+    private final int chain; // restart index in the run
+    private int replica = -1; // rung of the temperature ladder held, -1 outside replica exchange
+    private final long every; // iterations between reports
+    private final PrintWriter progress; // JSON lines, null for none
+    private final long started = System.nanoTime();
+    private long last = started; // System.nanoTime of the last report
+    private long iterations; // since the last report
+    private long moved; // iterations that moved the motif, since the last report
+    private long profileNanos; // withdraw, place and alignment score
+    private long scoreNanos; // window scoring
+    private long sampleNanos; // drawing the word
+    private long shiftNanos; // phase shift moves
+    private long totalIterations;
+    private long totalMoved;
+    private long totalProfile;
+    private long totalScore;
+    private long totalSample;
+    private long totalShift;
+
+    /**
+     * @param job names the run the chain is part of, null outside a batch
+     * @param chain the restart index of the chain
+     * @param everySweeps sweeps between reports
+     * @param sequences the size of S, the iterations in one sweep
+     * @param progress where the JSON lines go, null for none; shared by the
+     * chains of a run, and the runs of a batch, lines are written whole
+     */
+    public Metrics(String job, int chain, int everySweeps, int sequences, PrintWriter progress) {
+        this.job = job;
+        this.chain = chain;
+        this.every = Math.max(1, (long)everySweeps * sequences);
+        this.progress = progress;
+    }
+
+    /**
+     * Sets the rung of the temperature ladder the chain holds, see
+     * ParallelTempering
+     * @param rung the rung, 0 for the cold chain
+     */
+    void replica(int rung) {
+        this.replica = rung;
+    }
+
+    /**
+     * Records one sampler iteration
+     * @param profile nanoseconds updating the profile
+     * @param score nanoseconds scoring windows
+     * @param sample nanoseconds drawing the word
+     * @param shift nanoseconds of the phase shift move after it, 0 for none
+     * @param move whether the motif moved to another window or strand
+     * @param chain the chain, for the report
+     */
+    void step(long profile, long score, long sample, long shift, boolean move, Chain chain) {
+        profileNanos += profile;
+        scoreNanos += score;
+        sampleNanos += sample;
+        shiftNanos += shift;
+        iterations++;
+        if(move) {
+            moved++;
+        }
+        if(chain.iterations() % every == 0) {
+            report(chain);
+        }
+    }
+
+    /**
+     * Reports the iterations left since the last report and the end of the run
+     * @param chain the chain
+     * @param reason the rule that stopped it
+     */
+    void finish(Chain chain, Convergence.Reason reason) {
+        if(iterations > 0) {
+            report(chain);
+        }
+        ChainEvent event = new ChainEvent();
+        if(event.shouldCommit()) {
+            event.job = job;
+            event.chain = this.chain;
+            event.replica = replica;
+            event.iterations = chain.iterations();
+            event.score = chain.score();
+            event.reason = String.valueOf(reason);
+            event.elapsed = System.nanoTime() - started;
+            event.commit();
+        }
+        if(progress != null) {
+            line(String.format(Locale.ROOT, "{%s,\"done\":\"%s\",\"iterations\":%d,"
+                    + "\"seconds\":%.3f,\"score\":%.4f}", who(), reason, chain.iterations(),
+                    (System.nanoTime() - started) / 1e9, chain.score()));
+        }
+    }
+
+    /**
+     * Sends the figures since the last report and starts counting again
+     * @param chain the chain
+     */
+    private void report(Chain chain) {
+        long now = System.nanoTime();
+        double seconds = Math.max(now - last, 1) / 1e9;
+        double rate = iterations / seconds;
+        double acceptance = iterations == 0 ? 0 : (double)moved / iterations;
+        SweepEvent event = new SweepEvent();
+        if(event.shouldCommit()) {
+            event.job = job;
+            event.chain = this.chain;
+            event.replica = replica;
+            event.sweep = chain.sweeps();
+            event.iterations = chain.iterations();
+            event.interval = iterations;
+            event.iterationsPerSecond = rate;
+            event.acceptance = acceptance;
+            event.score = chain.score();
+            event.temperature = chain.temperature();
+            event.profile = profileNanos;
+            event.scoring = scoreNanos;
+            event.sampling = sampleNanos;
+            event.shifting = shiftNanos;
+            event.commit();
+        }
+        if(progress != null) {
+            line(String.format(Locale.ROOT, "{%s,\"sweep\":%.1f,\"iterations\":%d,\"interval\":%d,"
+                    + "\"iterationsPerSecond\":%.1f,\"acceptance\":%.4f,\"score\":%.4f,\"temperature\":%.3f,"
+                    + "\"profileMs\":%.3f,\"scoringMs\":%.3f,\"samplingMs\":%.3f,\"shiftMs\":%.3f}",
+                    who(), chain.sweeps(), chain.iterations(), iterations, rate, acceptance, chain.score(),
+                    chain.temperature(), profileNanos / 1e6, scoreNanos / 1e6, sampleNanos / 1e6,
+                    shiftNanos / 1e6));
+        }
+        totalIterations += iterations;
+        totalMoved += moved;
+        totalProfile += profileNanos;
+        totalScore += scoreNanos;
+        totalSample += sampleNanos;
+        totalShift += shiftNanos;
+        iterations = moved = 0;
+        profileNanos = scoreNanos = sampleNanos = shiftNanos = 0;
+        last = now;
+    }
+
+    /**
+     * @return the JSON fields telling this chain apart from the others
+     */
+    private String who() {
+        String who = "\"chain\":" + chain + (replica < 0 ? "" : ",\"replica\":" + replica);
+        return job == null ? who : "\"job\":\"" + job.replace("\\", "\\\\").replace("\"", "\\\"") + "\"," + who;
+    }
+
+    /**
+     * @param json one progress line
+     */
+    private void line(String json) {
+        synchronized(progress) {
+            progress.println(json);
+            progress.flush();
+        }
+    }
+
+    /**
+     * @return where the time of the reported iterations went, for the reports
+     */
+    @Override
+    public String toString() {
+        double all = Math.max(totalProfile + totalScore + totalSample + totalShift, 1);
+        return String.format(Locale.ROOT, "%.0f iterations/s, profile %.0f%%, scoring %.0f%%, sampling %.0f%%,"
+                + " shifts %.0f%%, %.1f%% of iterations moved a motif",
+                totalIterations / Math.max((System.nanoTime() - started) / 1e9, 1e-9),
+                100 * totalProfile / all, 100 * totalScore / all, 100 * totalSample / all,
+                100 * totalShift / all, 100.0 * totalMoved / Math.max(totalIterations, 1));
+    }
+
+    /**
+     * The loop of one chain over a few sweeps
+     */
+    @Name("gibbs_sampler.Sweep")
+    @Label("Gibbs Sampler Sweeps")
+    @Category("Gibbs Sampler")
+    @Description("Sampler iterations of one chain since its last report")
+    @StackTrace(false)
+    static class SweepEvent extends Event {
+        @Label("Job") String job;
+        @Label("Chain") int chain;
+        @Label("Replica") @Description("Rung of the temperature held, -1 outside replica exchange") int replica;
+        @Label("Sweep") double sweep;
+        @Label("Iterations") @Description("Iterations of the chain so far") long iterations;
+        @Label("Interval") @Description("Iterations since the last report") long interval;
+        @Label("Iterations per Second") double iterationsPerSecond;
+        @Label("Acceptance") @Description("Share of iterations that moved the motif") double acceptance;
+        @Label("Log Score") double score;
+        @Label("Temperature") double temperature;
+        @Label("Profile Update") @Timespan(Timespan.NANOSECONDS) long profile;
+        @Label("Window Scoring") @Timespan(Timespan.NANOSECONDS) long scoring;
+        @Label("Word Sampling") @Timespan(Timespan.NANOSECONDS) long sampling;
+        @Label("Phase Shifts") @Timespan(Timespan.NANOSECONDS) long shifting;
+    }
+
+    /**
+     * One chain from start to stop
+     */
+    @Name("gibbs_sampler.Chain")
+    @Label("Gibbs Sampler Chain")
+    @Category("Gibbs Sampler")
+    @Description("A chain that stopped")
+    @StackTrace(false)
+    static class ChainEvent extends Event {
+        @Label("Job") String job;
+        @Label("Chain") int chain;
+        @Label("Replica") @Description("Rung of the temperature held, -1 outside replica exchange") int replica;
+        @Label("Iterations") @Description("Iterations of the chain so far") long iterations;
+        @Label("Log Score") double score;
+        @Label("Stopped By") String reason;
+        @Label("Elapsed") @Timespan(Timespan.NANOSECONDS) long elapsed;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Runs independent chains from random restarts on a fork-join
+ * pool and keeps the best alignments by logScoreSumS.  Every chain gets its
+ * own generator split from one seed, so the outcome does not depend on how the
+ * pool schedules the chains.
+ */
+package gibbs_sampler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class MultiChain {
+
+    /**
+     * Runs chains concurrently and ranks them.  With a checkpoint directory
+     * the final states are on disk before this returns
+     * @param S the set of sequences, shared by every chain
+     * @param config the motif length, chain count and stop rule
+     * @param rng the generator the chain generators are split from
+     * @param pool the pool to run on
+     * @return the chains, best log score first
+     */
+    public static List<Chain> run(SequenceStore S, GibbsSampler.Config config, Rng rng, ForkJoinPool pool) {
+        try(Checkpoint checkpoint = config.checkpointDir != null && config.replicas <= 1 ? new Checkpoint() : null) {
+            return run(S, config, rng, pool, checkpoint);
+        } catch(IOException ex) {
+            throw new UncheckedIOException("Cannot write checkpoints", ex);
+        }
+    }
+
+    /**
+     * Runs chains concurrently and ranks them
+     * @param S the set of sequences, shared by every chain
+     * @param config the motif length, chain count and stop rule
+     * @param rng the generator the chain generators are split from
+     * @param pool the pool to run on
+     * @param checkpoint saves the chains of this run, null for none
+     * @return the chains, best log score first
+     */
+    private static List<Chain> run(SequenceStore S, GibbsSampler.Config config, Rng rng, ForkJoinPool pool,
+            Checkpoint checkpoint) {
+        List<RecursiveTask<Chain>> tasks = new ArrayList<>();
+        for(int i = 0; i < config.chains; i++) {
+            final Rng own = rng.split(); // split here, in order, to stay repeatable
+            final int restart = i;
+            tasks.add(new RecursiveTask<Chain>() {
+                @Override
+                protected Chain compute() {
+                    if(config.replicas > 1) { // replica exchange for every restart
+                        return ParallelTempering.run(S, config, own, restart);
+                    }
+                    if(checkpoint != null) { // saved as it runs
+                        return checkpoint.run(S, config, own, restart);
+                    }
+                    return config.chain(S, own, restart).run(config.convergence);
+                }
+            });
+        }
+        List<Chain> done = pool.invoke(new RecursiveTask<List<Chain>>() {
+            @Override
+            protected List<Chain> compute() {
+                List<Chain> out = new ArrayList<>();
+                for(RecursiveTask<Chain> t : ForkJoinTask.invokeAll(tasks)) {
+                    out.add(t.join());
+                }
+                return out;
+            }
+        });
+        done.sort(Comparator.comparingDouble(Chain::score).reversed());
+        return done;
+    }
+
+    /**
+     * Runs chains on the common pool and keeps the top ones
+     * @param S the set of sequences, shared by every chain
+     * @param config the motif length, chain count and stop rule
+     * @param rng the generator the chain generators are split from
+     * @param top how many of the best chains to keep
+     * @return at most top chains, best log score first
+     */
+    public static List<Chain> best(SequenceStore S, GibbsSampler.Config config, Rng rng, int top) {
+        return best(S, config, rng, top, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs chains on a given pool and keeps the top ones
+     * @param S the set of sequences, shared by every chain
+     * @param config the motif length, chain count and stop rule
+     * @param rng the generator the chain generators are split from
+     * @param top how many of the best chains to keep
+     * @param pool the pool to run on
+     * @return at most top chains, best log score first
+     */
+    public static List<Chain> best(SequenceStore S, GibbsSampler.Config config, Rng rng, int top, ForkJoinPool pool) {
+        List<Chain> ranked = run(S, config, rng, pool);
+        return new ArrayList<>(ranked.subList(0, Math.min(top, ranked.size())));
+    }
+}
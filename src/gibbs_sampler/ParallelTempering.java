@@ -0,0 +1,107 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Replica exchange.  Several chains sample the same set of
+ * sequences at temperatures from 1 up to a maximum, spaced geometrically; a
+ * hot chain draws words from weights raised to 1 / T, so it wanders out of
+ * shifted and partial motifs a cold chain would be stuck in.  The replicas run
+ * a sweep each in parallel, then neighbours offer to swap temperatures with
+ * the usual Metropolis rule.  Only the cold chain counts for the stop rules
+ * and the result, which is the best alignment the cold chain has held.
+ */
+package gibbs_sampler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelTempering {
+
+    private static final double LN10 = Math.log(10);
+
+    /**
+     * Runs one set of replicas until the cold chain meets a stop rule
+     * @param S the set of sequences, shared by every replica
+     * @param config the motif length, replicas, temperatures and stop rules
+     * @param rng the generator of this run, replicas get split ones
+     * @param restart which restart this is, for seeded starts
+     * @return a chain holding the best cold alignment
+     */
+    public static Chain run(SequenceStore S, GibbsSampler.Config config, Rng rng, int restart) {
+        int replicas = config.replicas;
+        Chain[] ladder = new Chain[replicas]; // ladder[k] runs at temperature k
+        double[] temperatures = new double[replicas];
+        for(int k = 0; k < replicas; k++) {
+            temperatures[k] = Math.pow(config.maxTemperature, (double)k / (replicas - 1));
+            ladder[k] = config.chain(S, rng.split(), restart);
+            ladder[k].temperature(temperatures[k]);
+            rung(ladder[k], k);
+        }
+        long sweep = Math.max(S.size(), 1); // iterations between exchanges
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for(int k = 0; k < replicas; k++) {
+            final int r = k;
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ladder[r].run(sweep); // whichever chain holds temperature r now
+                }
+            });
+        }
+        Convergence.Monitor monitor = config.convergence.start(S.size(), ladder[0].score());
+        int[] best = ladder[0].Z().clone();
+        boolean[] bestReverse = ladder[0].reverse().clone();
+        double bestScore = ladder[0].score();
+        do {
+            for(RecursiveAction t : tasks) {
+                t.reinitialize();
+            }
+            ForkJoinTask.invokeAll(tasks);
+            for(int k = replicas - 1; k > 0; k--) { // neighbours offer to swap
+                double a = ladder[k - 1].score() * LN10;
+                double b = ladder[k].score() * LN10;
+                double accept = (b - a) * (1 / temperatures[k - 1] - 1 / temperatures[k]);
+                if(accept >= 0 || rng.nextDouble() < Math.exp(accept)) {
+                    Chain colder = ladder[k - 1];
+                    ladder[k - 1] = ladder[k];
+                    ladder[k] = colder;
+                    ladder[k - 1].temperature(temperatures[k - 1]);
+                    ladder[k].temperature(temperatures[k]);
+                    rung(ladder[k - 1], k - 1);
+                    rung(ladder[k], k);
+                }
+            }
+            if(ladder[0].score() > bestScore) {
+                bestScore = ladder[0].score();
+                System.arraycopy(ladder[0].Z(), 0, best, 0, best.length);
+                System.arraycopy(ladder[0].reverse(), 0, bestReverse, 0, bestReverse.length);
+            }
+        } while(!monitor.done(ladder[0].score(), sweep));
+        long shiftMoves = 0;
+        long shiftsTaken = 0;
+        for(Chain c : ladder) {
+            shiftMoves += c.shiftMoves();
+            shiftsTaken += c.shiftsTaken();
+            if(c.metrics() != null) { // every replica ends when the cold one does
+                c.metrics().finish(c, monitor.reason());
+            }
+        }
+        Chain result = new Chain(S, config.l, rng.split(), best, bestReverse, config.background)
+                .bothStrands(config.bothStrands);
+        result.finish(monitor.iterations(), replicas, monitor.reason(), shiftMoves, shiftsTaken); // the cold chain's
+        return result;
+    }
+
+    /**
+     * Tells the metrics of a replica which temperature it holds now
+     * @param replica the chain
+     * @param rung its place on the ladder, 0 for the cold one
+     */
+    private static void rung(Chain replica, int rung) {
+        if(replica.metrics() != null) {
+            replica.metrics().replica(rung);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Integer counts behind theta and theta zero.  Motif counts hold
+ * the letters at every motif column over the aligned sequences, background
+ * counts hold every letter outside the motifs.  Withdrawing or placing the
+ * motif of one sequence only moves its l letters between the two, and theta
+ * and theta zero are derived from the counts when asked for, together with
+ * the log-odds matrix used to score windows.  With a fixed Background theta
+ * zero comes from it instead of the background counts.  A motif on the
+ * reverse strand is counted as its reverse complement, so column j gets the
+ * complement of the letter l - 1 - j of the window, while theta zero still
+ * scores the letters read off the forward strand.  Against a Markov
+ * Background the matrix holds log theta alone, and each window has its own
+ * background likelihood taken off, see Background.window.
+ */
+package gibbs_sampler;
+
+public class Profile {
+
+    protected static final double PSEUDOCOUNT = 1.0; // spread over a column by theta zero
+
+    private final SequenceStore S;
+    private final int l;
+    private final int[][] counts; // [code][column] letters in the motifs
+    private final int[] background = new int[5]; // [code] letters outside the motifs
+    private final Background fixed; // theta zero when not null
+    private final boolean markov; // fixed is a Markov chain, windows have their own background
+    private double windowBackground; // log background likelihood of the aligned windows
+    private int aligned; // sequences with a motif in counts
+    private double[][] theta;
+    private final double[] thetaZero = new double[4];
+    private final double[] logOdds; // flat, see ScoreKernel
+    private final double[] reverseLogOdds; // logOdds reverse complemented
+    private final int[] letters = new int[5]; // [code] every letter of S, fixed but for Distributed
+    private boolean stale = true; // counts changed since theta was derived
+
+    /**
+     * Counts the motifs of every sequence once
+     * @param S the set of sequences
+     * @param Z the motif start in each sequence, -1 for no motif
+     * @param l the motif length
+     */
+    public Profile(SequenceStore S, int[] Z, int l) {
+        this(S, Z, l, null);
+    }
+
+    /**
+     * Counts the motifs of every sequence once
+     * @param S the set of sequences
+     * @param Z the motif start in each sequence, -1 for no motif
+     * @param l the motif length
+     * @param fixed the theta zero to use, null for the background counts
+     */
+    public Profile(SequenceStore S, int[] Z, int l, Background fixed) {
+        this(S, Z, null, l, fixed);
+    }
+
+    /**
+     * Counts the motifs of every sequence once, on either strand
+     * @param S the set of sequences
+     * @param Z the motif start in each sequence, -1 for no motif
+     * @param reverse whether each motif is on the reverse strand, null for none
+     * @param l the motif length
+     * @param fixed the theta zero to use, null for the background counts
+     */
+    public Profile(SequenceStore S, int[] Z, boolean[] reverse, int l, Background fixed) {
+        this.S = S;
+        this.l = l;
+        this.fixed = fixed;
+        this.markov = fixed != null && fixed.markov();
+        this.counts = new int[5][l];
+        this.theta = new double[4][l];
+        this.logOdds = new double[l * ScoreKernel.STRIDE];
+        this.reverseLogOdds = new double[l * ScoreKernel.STRIDE];
+        byte[] codes = S.codes();
+        for(int k = 0; k < S.totalLength(); k++) { // everything starts as background
+            background[codes[k]]++;
+        }
+        System.arraycopy(background, 0, letters, 0, letters.length);
+        for(int i = 0; i < S.size(); i++) {
+            if(Z[i] >= 0) {
+                place(i, Z[i], reverse != null && reverse[i]);
+            }
+        }
+    }
+
+    /**
+     * Takes the motif of a sequence out of the counts (10.9 4)
+     * @param seq the sequence index
+     * @param z the current motif start of the sequence
+     */
+    public void withdraw(int seq, int z) {
+        withdraw(seq, z, false);
+    }
+
+    /**
+     * Takes the motif of a sequence out of the counts (10.9 4)
+     * @param seq the sequence index
+     * @param z the current motif start of the sequence
+     * @param reverse whether the motif is on the reverse strand
+     */
+    public void withdraw(int seq, int z, boolean reverse) {
+        move(seq, z, reverse, -1);
+        aligned--;
+    }
+
+    /**
+     * Puts a motif of a sequence into the counts (10.9 7)
+     * @param seq the sequence index
+     * @param z the new motif start of the sequence
+     */
+    public void place(int seq, int z) {
+        place(seq, z, false);
+    }
+
+    /**
+     * Puts a motif of a sequence into the counts (10.9 7)
+     * @param seq the sequence index
+     * @param z the new motif start of the sequence
+     * @param reverse whether the motif is on the reverse strand
+     */
+    public void place(int seq, int z, boolean reverse) {
+        move(seq, z, reverse, 1);
+        aligned++;
+    }
+
+    /**
+     * Moves the l letters of a motif between background and motif counts
+     * @param seq the sequence index
+     * @param z the motif start
+     * @param reverse whether the motif is on the reverse strand
+     * @param delta +1 to add to the motif, -1 to give back to the background
+     */
+    private void move(int seq, int z, boolean reverse, int delta) {
+        byte[] codes = S.codes();
+        int at = S.offset(seq) + z;
+        for(int j = 0; j < l; j++) {
+            byte c = codes[at + j];
+            if(reverse) {
+                counts[c ^ 1][l - 1 - j] += delta; // complement, A^1 is T and C^1 is G
+            } else {
+                counts[c][j] += delta;
+            }
+            background[c] -= delta;
+        }
+        if(markov) {
+            windowBackground += delta * fixed.window(at, l);
+        }
+        stale = true;
+    }
+
+    /**
+     * Sets the counts to ones summed elsewhere, the counts of every shard
+     * of a distributed run, see Distributed.  Letters moved by withdraw and
+     * place change them from there on
+     * @param motif the motif letter counts per code and column, copied
+     * @param outside the letter counts outside the motifs per code, copied
+     * @param aligned the number of motifs in motif
+     */
+    void counts(int[][] motif, int[] outside, int aligned) {
+        for(int c = 0; c < counts.length; c++) {
+            System.arraycopy(motif[c], 0, counts[c], 0, l);
+        }
+        System.arraycopy(outside, 0, background, 0, background.length);
+        this.aligned = aligned;
+        stale = true;
+    }
+
+    /**
+     * Sets the letters of S to the ones of every shard of a distributed run,
+     * see Distributed.  The motifs hold those not outside them
+     * @param all the letter counts per code, copied
+     */
+    void letters(int[] all) {
+        System.arraycopy(all, 0, letters, 0, letters.length);
+        stale = true;
+    }
+
+    /**
+     * @return whether windows are scored against their own Markov background
+     */
+    public boolean markov() {
+        return markov;
+    }
+
+    /**
+     * @return the number of sequences with a motif in the counts
+     */
+    public int aligned() {
+        return aligned;
+    }
+
+    /**
+     * @return the motif length
+     */
+    public int length() {
+        return l;
+    }
+
+    /**
+     * The motif letter counts.  Shared, never modify it
+     * @return counts per code and column
+     */
+    public int[][] counts() {
+        return counts;
+    }
+
+    /**
+     * The background letter counts.  Shared, never modify it
+     * @return counts per code
+     */
+    public int[] backgroundCounts() {
+        return background;
+    }
+
+    /**
+     * Every letter of S, motif or not.  Shared, never modify it
+     * @return counts per code
+     */
+    public int[] letters() {
+        return letters;
+    }
+
+    /**
+     * Theta for the current counts.  Shared and updated in place
+     * @return the frequency of each letter per motif column
+     */
+    public double[][] theta() {
+        derive();
+        return theta;
+    }
+
+    /**
+     * Theta zero for the current counts.  Shared and updated in place
+     * @return the frequency of each letter in the background
+     */
+    public double[] thetaZero() {
+        derive();
+        return thetaZero;
+    }
+
+    /**
+     * Log-odds of each letter per motif column against the background, with
+     * pseudocounts so no letter is impossible.  Against a Markov background
+     * log theta only, the window background is taken off after scoring.
+     * Shared and updated in place
+     * @return the flat matrix for ScoreKernel
+     */
+    public double[] logOdds() {
+        derive();
+        return logOdds;
+    }
+
+    /**
+     * The log-odds matrix read on the reverse strand: column j of code c is
+     * theta of column l - 1 - j of the complement of c against theta zero of
+     * c itself, the letter of the window.  Shared and updated in place
+     * @return the flat matrix for ScoreKernel.scoreBothStrands
+     */
+    public double[] reverseLogOdds() {
+        derive();
+        return reverseLogOdds;
+    }
+
+    /**
+     * Sum of the log-odds scores of all motifs in the counts.  Each letter of
+     * each motif adds its matrix entry, so this is the counts times the matrix,
+     * 4 * l products however many sequences there are.  A Markov background
+     * of the windows is kept summed as motifs move
+     * @return the natural log score of the alignment
+     */
+    public double alignmentScore() {
+        derive();
+        double sum = markov ? -windowBackground : 0;
+        for(int j = 0; j < l; j++) {
+            int k = j * ScoreKernel.STRIDE;
+            for(int b = 0; b < 4; b++) { // motifs hold no N
+                sum += counts[b][j] * logOdds[k + b];
+            }
+        }
+        return markov ? sum : sum + strands(counts, background, thetaZero);
+    }
+
+    /**
+     * What the matrix charges counted letters against theta zero less what
+     * the letters of the windows owe it.  The two differ by the motifs on the
+     * reverse strand, counted as the complement of the letters read
+     * @param counts the motif letter counts per code and column
+     * @param outside the letter counts outside the motifs per code
+     * @param zero theta zero
+     * @return the natural log to add to a score read off counts and the matrix
+     */
+    private double strands(int[][] counts, int[] outside, double[] zero) {
+        double sum = 0;
+        for(int b = 0; b < 4; b++) {
+            int counted = 0;
+            for(int j = 0; j < l; j++) {
+                counted += counts[b][j];
+            }
+            int read = letters[b] - outside[b];
+            if(counted != read) { // never 0 * log 0
+                sum += (counted - read) * Math.log(zero[b]);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Log score of any alignment given only its counts, with the same theta
+     * zero, pseudocounts and log-odds as alignmentScore, see Chain.phaseShift
+     * @param counts the motif letter counts per code and column
+     * @param outside the letter counts outside the motifs per code
+     * @param aligned the number of motifs in counts
+     * @param windows the log Markov background of the aligned windows, 0
+     * unless the background is a Markov chain
+     * @return the natural log score of the alignment
+     */
+    public double score(int[][] counts, int[] outside, int aligned, double windows) {
+        double count = outside[0] + outside[1] + outside[2] + outside[3];
+        double n1 = aligned + PSEUDOCOUNT;
+        double sum = markov ? -windows : 0;
+        double[] zero = new double[4];
+        for(int b = 0; b < 4; b++) {
+            zero[b] = fixed == null ? outside[b] / count : fixed.frequency(b);
+            for(int j = 0; j < l; j++) {
+                if(counts[b][j] > 0) {
+                    double q = (counts[b][j] + PSEUDOCOUNT * zero[b]) / n1;
+                    sum += counts[b][j] * Math.log(markov ? q : q / zero[b]);
+                }
+            }
+        }
+        return markov ? sum : sum + strands(counts, outside, zero);
+    }
+
+    /**
+     * The alignment score in bits over the letters aligned.  Against letter
+     * frequencies this is the relative entropy of the pseudocounted theta
+     * against theta zero; against a Markov background it is only the mean
+     * log-likelihood ratio per letter.  Short motifs of the best columns
+     * always have more of it, see evidence
+     * @return the mean bits per motif column, 0 with nothing aligned
+     */
+    public double information() {
+        return aligned == 0 ? 0 : alignmentScore() / ((double)aligned * l * Math.log(2));
+    }
+
+    /**
+     * The alignment score in bits less (3 / 2) log2 N bits per column, the
+     * charge of the Bayesian information criterion for the three letter
+     * frequencies a column fits to N motifs.  A column of background letters
+     * costs more than it adds, so this ranks motif lengths without favouring
+     * short or long ones
+     * @return the penalized log-likelihood ratio in bits, 0 with nothing aligned
+     */
+    public double evidence() {
+        return aligned == 0 ? 0 : (alignmentScore() - 1.5 * l * Math.log(aligned)) / Math.log(2);
+    }
+
+    /**
+     * Turns the counts into frequencies if they changed since last time
+     */
+    private void derive() {
+        if(!stale) {
+            return;
+        }
+        double n = aligned;
+        for(int b = 0; b < 4; b++) {
+            for(int j = 0; j < l; j++) {
+                theta[b][j] = n == 0 ? 0 : counts[b][j]/n;
+            }
+        }
+        double count = background[0] + background[1] + background[2] + background[3];
+        for(int b = 0; b < 4; b++) {
+            thetaZero[b] = fixed == null ? background[b]/count : fixed.frequency(b);
+        }
+        double n1 = aligned + PSEUDOCOUNT;
+        for(int j = 0; j < l; j++) {
+            int k = j * ScoreKernel.STRIDE;
+            for(int b = 0; b < 4; b++) {
+                double q = (counts[b][j] + PSEUDOCOUNT * thetaZero[b]) / n1;
+                logOdds[k + b] = Math.log(markov ? q : q / thetaZero[b]);
+            }
+            logOdds[k + SequenceStore.N] = Double.NEGATIVE_INFINITY; // never a motif
+        }
+        for(int j = 0; j < l; j++) {
+            int k = j * ScoreKernel.STRIDE;
+            for(int b = 0; b < 4; b++) { // theta of the complement, theta zero of the letter read
+                double q = (counts[b ^ 1][l - 1 - j] + PSEUDOCOUNT * thetaZero[b ^ 1]) / n1;
+                reverseLogOdds[k + b] = Math.log(markov ? q : q / thetaZero[b]);
+            }
+            reverseLogOdds[k + SequenceStore.N] = Double.NEGATIVE_INFINITY;
+        }
+        stale = false;
+    }
+}
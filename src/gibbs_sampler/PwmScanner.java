@@ -0,0 +1,587 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Scans a genome for the sites of a position weight matrix, the
+ * one a run found or one saved to a file earlier.  A first pass over the
+ * memory mapped FASTA file only notes where each sequence and each chunk of
+ * a million letters begins.  The chunks are then read and scored in parallel,
+ * a few per thread at a time, each mapped on its own and carrying the l - 1
+ * letters after it so windows across a chunk border are scored exactly once.
+ * Both strands are scored in one kernel pass.  Windows at or above the
+ * threshold, a log-odds score or one worked out from a p-value, are written
+ * in genome order as their chunks finish, or only the best k are kept in a
+ * heap.  Either way memory holds a few chunks, whatever the genome size.
+ */
+package gibbs_sampler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class PwmScanner {
+
+    public static final double DEFAULT_PVALUE = 1e-4; // a window per 10 kb by chance, per strand
+
+    private static final int CHUNK = 1 << 20; // letters scored by one task
+    private static final int BLOCK = 1 << 14; // windows scored per kernel call
+    private static final long MAP = 1L << 30; // bytes mapped at a time by the first pass
+    private static final int CHUNKS_PER_THREAD = 2; // chunks in memory at once
+
+    // the worst hit first: lower score, then later in the genome, then reverse strand
+    private static final Comparator<Hit> WORSE = Comparator.<Hit>comparingDouble(h -> h.score)
+            .thenComparing(h -> h.record, Comparator.reverseOrder())
+            .thenComparing(h -> h.position, Comparator.reverseOrder())
+            .thenComparing(h -> !h.reverse);
+
+    private final Pwm pwm;
+    private final double threshold;
+    private final int top;
+
+    /**
+     * @param pwm the matrix to scan with
+     * @param threshold the lowest log-odds score of a hit
+     * @param top keep only the best this many hits, 0 to write every hit
+     */
+    public PwmScanner(Pwm pwm, double threshold, int top) {
+        if(top < 0) {
+            throw new IllegalArgumentException("The number of top hits cannot be negative");
+        }
+        this.pwm = pwm;
+        this.threshold = Math.max(threshold, -Double.MAX_VALUE); // windows with N stay out
+        this.top = top;
+    }
+
+    /**
+     * A log-odds position weight matrix and the background it was made
+     * against, flat like Profile.logOdds
+     */
+    public static class Pwm {
+        private final int l;
+        private final double[] logOdds; // [j * STRIDE + code], N never matches
+        private final double[] reverse; // the matrix read on the reverse strand
+        private final double[] background = new double[4]; // [code] theta zero
+
+        /**
+         * @param columns the natural log-odds of a, t, c and g per motif column
+         * @param background the probability of a, t, c and g outside motifs
+         */
+        public Pwm(double[][] columns, double[] background) {
+            if(columns.length == 0) {
+                throw new IllegalArgumentException("A matrix needs at least one column");
+            }
+            this.l = columns.length;
+            this.logOdds = new double[l * ScoreKernel.STRIDE];
+            this.reverse = new double[l * ScoreKernel.STRIDE];
+            double sum = 0;
+            for(int b = 0; b < 4; b++) {
+                if(!(background[b] > 0)) {
+                    throw new IllegalArgumentException("Every nucleotide needs a background frequency above 0");
+                }
+                sum += background[b];
+            }
+            for(int b = 0; b < 4; b++) {
+                this.background[b] = background[b] / sum;
+            }
+            for(int j = 0; j < l; j++) {
+                int k = j * ScoreKernel.STRIDE;
+                int r = (l - 1 - j) * ScoreKernel.STRIDE;
+                for(int b = 0; b < 4; b++) {
+                    logOdds[k + b] = columns[j][b];
+                    // the complement read on the forward strand, against its own background
+                    reverse[r + (b ^ 1)] = columns[j][b] + Math.log(this.background[b] / this.background[b ^ 1]);
+                }
+                logOdds[k + SequenceStore.N] = Double.NEGATIVE_INFINITY;
+                reverse[r + SequenceStore.N] = Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        /**
+         * The matrix of the motifs of a chain against its theta zero, with
+         * the pseudocounts Profile scores with.  Against a Markov background
+         * the letter frequencies of S stand in for it, a genome scan has no
+         * windows of S to take it from
+         * @param chain the chain holding the motifs
+         * @return the matrix
+         */
+        public static Pwm of(Chain chain) {
+            int[][] counts = chain.counts();
+            double[] thetaZero = chain.getThetaZero();
+            int aligned = chain.S().size(); // one motif per sequence
+            double[][] columns = new double[chain.l()][4];
+            for(int j = 0; j < chain.l(); j++) {
+                for(int b = 0; b < 4; b++) {
+                    double q = (counts[b][j] + Profile.PSEUDOCOUNT * thetaZero[b]) / (aligned + Profile.PSEUDOCOUNT);
+                    columns[j][b] = Math.log(q / thetaZero[b]);
+                }
+            }
+            return new Pwm(columns, thetaZero);
+        }
+
+        /**
+         * Reads a matrix written by save: a background line and one line of
+         * four log-odds per column, a, t, c and g order; # starts a comment
+         * @param path the matrix file
+         * @return the matrix
+         * @throws IOException when the file cannot be read or is no matrix
+         */
+        public static Pwm load(Path path) throws IOException {
+            double[] background = {1, 1, 1, 1}; // uniform unless given
+            List<double[]> columns = new ArrayList<>();
+            int n = 0;
+            for(String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                n++;
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                boolean isBackground = fields[0].equals("background");
+                if(fields.length != (isBackground ? 5 : 4)) {
+                    throw new IOException(path + " line " + n + ": expected four numbers, a, t, c and g");
+                }
+                double[] values = new double[4];
+                try {
+                    for(int b = 0; b < 4; b++) {
+                        values[b] = Double.parseDouble(fields[isBackground ? b + 1 : b]);
+                    }
+                } catch(NumberFormatException ex) {
+                    throw new IOException(path + " line " + n + ": " + ex.getMessage());
+                }
+                if(isBackground) {
+                    background = values;
+                } else {
+                    columns.add(values);
+                }
+            }
+            if(columns.isEmpty()) {
+                throw new IOException(path + " holds no matrix columns");
+            }
+            return new Pwm(columns.toArray(new double[0][]), background);
+        }
+
+        /**
+         * Writes the matrix so load gives it back exactly
+         * @param path the matrix file, overwritten
+         * @throws IOException when the file cannot be written
+         */
+        public void save(Path path) throws IOException {
+            try(PrintWriter w = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+                w.println("# Gibbs sampler position weight matrix, natural log-odds against the background");
+                w.println("# columns: a t c g");
+                w.println("background\t" + background[0] + "\t" + background[1] + "\t" + background[2]
+                        + "\t" + background[3]);
+                for(int j = 0; j < l; j++) {
+                    int k = j * ScoreKernel.STRIDE;
+                    w.println(logOdds[k] + "\t" + logOdds[k + 1] + "\t" + logOdds[k + 2] + "\t" + logOdds[k + 3]);
+                }
+            }
+        }
+
+        /**
+         * @return the motif length
+         */
+        public int length() {
+            return l;
+        }
+
+        /**
+         * @return the highest score a window can have
+         */
+        public double maxScore() {
+            double max = 0;
+            for(int j = 0; j < l; j++) {
+                int k = j * ScoreKernel.STRIDE;
+                max += Math.max(Math.max(logOdds[k], logOdds[k + 1]), Math.max(logOdds[k + 2], logOdds[k + 3]));
+            }
+            return max;
+        }
+
+        /**
+         * The lowest score a random window of the background reaches with
+         * at most probability p, on one strand.  The exact distribution of
+         * window scores is added up column by column on a grid of a
+         * thousandth of a nat, so the cutoff is off by at most l thousandths
+         * @param p the p-value cutoff
+         * @return the log-odds threshold
+         */
+        public double threshold(double p) {
+            if(!(p > 0 && p <= 1)) {
+                throw new IllegalArgumentException("A p-value must be above 0 and at most 1");
+            }
+            final double scale = 1000;
+            int[][] steps = new int[l][4];
+            int offset = 0; // grid steps of the lowest possible score
+            int span = 0;
+            for(int j = 0; j < l; j++) {
+                int min = Integer.MAX_VALUE;
+                int max = Integer.MIN_VALUE;
+                for(int b = 0; b < 4; b++) {
+                    steps[j][b] = (int)Math.round(logOdds[j * ScoreKernel.STRIDE + b] * scale);
+                    min = Math.min(min, steps[j][b]);
+                    max = Math.max(max, steps[j][b]);
+                }
+                for(int b = 0; b < 4; b++) {
+                    steps[j][b] -= min;
+                }
+                offset += min;
+                span += max - min;
+            }
+            double[] pr = new double[span + 1];
+            double[] next = new double[span + 1];
+            pr[0] = 1;
+            int reach = 0;
+            for(int j = 0; j < l; j++) { // the distribution after j + 1 columns
+                Arrays.fill(next, 0, span + 1, 0);
+                int longest = 0;
+                for(int b = 0; b < 4; b++) {
+                    longest = Math.max(longest, steps[j][b]);
+                    for(int s = 0; s <= reach; s++) {
+                        next[s + steps[j][b]] += pr[s] * background[b];
+                    }
+                }
+                reach += longest;
+                double[] swap = pr;
+                pr = next;
+                next = swap;
+            }
+            double tail = 0;
+            int s = span + 1;
+            while(s > 0 && tail + pr[s - 1] <= p) { // lowest score whose tail is within p
+                tail += pr[--s];
+            }
+            return (s + offset) / scale;
+        }
+    }
+
+    /**
+     * One sequence of the genome
+     */
+    static class Record {
+        final String id;
+        long end; // file offset after its last letter
+
+        Record(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * The letters one task scores
+     */
+    static class Chunk {
+        final int record;
+        final long offset; // file offset of its first letter
+        final long first; // index of its first letter in the record
+        final int letters;
+
+        Chunk(int record, long offset, long first, int letters) {
+            this.record = record;
+            this.offset = offset;
+            this.first = first;
+            this.letters = letters;
+        }
+    }
+
+    /**
+     * The hits of one chunk
+     */
+    static class Found {
+        final List<Hit> hits; // when keeping the top ones
+        final StringBuilder lines; // else
+        long count;
+
+        Found(boolean keep) {
+            this.hits = keep ? new ArrayList<>() : null;
+            this.lines = keep ? null : new StringBuilder();
+        }
+    }
+
+    /**
+     * A window at or above the threshold
+     */
+    static class Hit {
+        final int record;
+        final long position; // 0-based start in the record
+        final boolean reverse;
+        final double score;
+        final String site; // as the motif reads
+
+        Hit(int record, long position, boolean reverse, double score, String site) {
+            this.record = record;
+            this.position = position;
+            this.reverse = reverse;
+            this.score = score;
+            this.site = site;
+        }
+    }
+
+    /**
+     * Scans a FASTA file and writes a line per hit: the sequence name, the
+     * 1-based start, the strand, the score and the site as the motif reads
+     * @param fasta an uncompressed FASTA file, it is memory mapped
+     * @param out where the hits go
+     * @return the number of hits written
+     * @throws IOException when the file cannot be read
+     */
+    public long scan(Path fasta, PrintWriter out) throws IOException {
+        if(fasta.getFileName().toString().endsWith(".gz")) {
+            throw new IOException(fasta + " is compressed, scanning memory maps the file so gunzip it first");
+        }
+        try(FileChannel channel = FileChannel.open(fasta, StandardOpenOption.READ)) {
+            List<Record> records = new ArrayList<>();
+            List<Chunk> chunks = new ArrayList<>();
+            index(channel, records, chunks);
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            int wave = CHUNKS_PER_THREAD * pool.getParallelism();
+            PriorityQueue<Hit> best = new PriorityQueue<>(WORSE);
+            long written = 0;
+            for(int from = 0; from < chunks.size(); from += wave) {
+                List<RecursiveTask<Found>> tasks = new ArrayList<>();
+                for(Chunk chunk : chunks.subList(from, Math.min(from + wave, chunks.size()))) {
+                    tasks.add(new RecursiveTask<Found>() {
+                        @Override
+                        protected Found compute() {
+                            try {
+                                return scan(channel, records, chunk);
+                            } catch(IOException ex) {
+                                throw new UncheckedIOException(ex);
+                            }
+                        }
+                    });
+                }
+                try {
+                    pool.invoke(new RecursiveTask<Void>() {
+                        @Override
+                        protected Void compute() {
+                            ForkJoinTask.invokeAll(tasks);
+                            return null;
+                        }
+                    });
+                } catch(UncheckedIOException ex) {
+                    throw ex.getCause();
+                }
+                for(RecursiveTask<Found> task : tasks) { // in genome order
+                    Found found = task.join();
+                    if(top > 0) {
+                        for(Hit hit : found.hits) {
+                            offer(best, hit);
+                        }
+                    } else {
+                        out.append(found.lines);
+                        written += found.count;
+                    }
+                }
+            }
+            if(top > 0) {
+                List<Hit> ranked = new ArrayList<>(best);
+                ranked.sort(WORSE.reversed());
+                StringBuilder lines = new StringBuilder();
+                for(Hit hit : ranked) {
+                    line(lines, records.get(hit.record).id, hit.position, hit.reverse, hit.score, hit.site);
+                }
+                out.append(lines);
+                written = ranked.size();
+            }
+            out.flush();
+            return written;
+        }
+    }
+
+    /**
+     * The first pass: finds where every sequence and every chunk begins
+     * @param channel the FASTA file
+     * @param records receives the sequences
+     * @param chunks receives the chunks in file order
+     * @throws IOException when the file cannot be read or is no FASTA
+     */
+    private static void index(FileChannel channel, List<Record> records, List<Chunk> chunks) throws IOException {
+        long size = channel.size();
+        ByteArrayOutputStream header = new ByteArrayOutputStream(); // name under construction
+        boolean inHeader = false;
+        boolean named = false; // past the first blank of the header
+        boolean lineStart = true;
+        long chunkOffset = 0;
+        long chunkFirst = 0;
+        int inChunk = 0;
+        long letters = 0;
+        List<Long> starts = new ArrayList<>(); // header line of every sequence
+        for(long base = 0; base < size; base += MAP) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(MAP, size - base));
+            for(int i = 0, n = buffer.limit(); i < n; i++) {
+                byte b = buffer.get(i);
+                if(b == '\n' || b == '\r') {
+                    if(inHeader) {
+                        String id = header.toString(StandardCharsets.UTF_8.name());
+                        records.add(new Record(id.isEmpty() ? "seq" + (records.size() + 1) : id));
+                        inHeader = false;
+                        letters = 0;
+                    }
+                    lineStart = true;
+                    continue;
+                }
+                if(inHeader) {
+                    if(b > ' ' && !named) {
+                        header.write(b);
+                    } else if(header.size() > 0) {
+                        named = true; // the name ends at the first blank
+                    }
+                    continue;
+                }
+                if(lineStart && b == '>') {
+                    if(inChunk > 0) {
+                        chunks.add(new Chunk(records.size() - 1, chunkOffset, chunkFirst, inChunk));
+                        inChunk = 0;
+                    }
+                    starts.add(base + i);
+                    inHeader = true;
+                    named = false;
+                    header.reset();
+                    lineStart = false;
+                    continue;
+                }
+                lineStart = false;
+                if(b <= ' ') {
+                    continue;
+                }
+                if(records.isEmpty()) {
+                    throw new IOException("Scanning needs a FASTA file, letters come before the first header");
+                }
+                if(inChunk == 0) {
+                    chunkOffset = base + i;
+                    chunkFirst = letters;
+                }
+                letters++;
+                if(++inChunk == CHUNK) {
+                    chunks.add(new Chunk(records.size() - 1, chunkOffset, chunkFirst, inChunk));
+                    inChunk = 0;
+                }
+            }
+        }
+        if(inHeader) { // a header on the last line, no letters
+            records.add(new Record("seq" + (records.size() + 1)));
+        }
+        if(inChunk > 0) {
+            chunks.add(new Chunk(records.size() - 1, chunkOffset, chunkFirst, inChunk));
+        }
+        for(int r = 0; r < records.size(); r++) { // each sequence ends where the next header starts
+            records.get(r).end = r + 1 < starts.size() ? starts.get(r + 1) : size;
+        }
+    }
+
+    /**
+     * Reads and scores one chunk and the l - 1 letters after it
+     * @param channel the FASTA file
+     * @param records the sequences
+     * @param chunk the chunk
+     * @return the hits of the chunk
+     * @throws IOException when the file cannot be read
+     */
+    private Found scan(FileChannel channel, List<Record> records, Chunk chunk) throws IOException {
+        int l = pwm.l;
+        int need = chunk.letters + l - 1;
+        byte[] codes = new byte[need];
+        int got = 0;
+        long at = chunk.offset;
+        long end = records.get(chunk.record).end;
+        while(got < need && at < end) { // line breaks take a few bytes more than letters
+            long span = Math.min(end - at, 2L * (need - got) + 4096);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, at, span);
+            for(int i = 0; i < span && got < need; i++) {
+                byte b = buffer.get(i);
+                if(b > ' ') {
+                    codes[got++] = SequenceStore.encode(b);
+                }
+            }
+            at += span;
+        }
+        int windows = Math.min(chunk.letters, got - l + 1);
+        String id = records.get(chunk.record).id;
+        Found found = new Found(top > 0);
+        PriorityQueue<Hit> best = top > 0 ? new PriorityQueue<>(WORSE) : null;
+        ScoreKernel kernel = ScoreKernel.create();
+        double[] out = new double[2 * BLOCK];
+        for(int from = 0; from < windows; from += BLOCK) {
+            int n = Math.min(BLOCK, windows - from);
+            kernel.scoreBothStrands(codes, from, n + l - 1, pwm.logOdds, pwm.reverse, l, out);
+            for(int i = 0; i < 2 * n; i++) { // forward then reverse, window by window
+                int w = i >> 1;
+                boolean reverse = (i & 1) == 1;
+                double score = out[reverse ? n + w : w];
+                if(score < threshold || (best != null && best.size() == top && score < best.peek().score)) {
+                    continue;
+                }
+                String site = site(codes, from + w, l, reverse);
+                if(best != null) {
+                    offer(best, new Hit(chunk.record, chunk.first + from + w, reverse, score, site));
+                } else {
+                    line(found.lines, id, chunk.first + from + w, reverse, score, site);
+                    found.count++;
+                }
+            }
+        }
+        if(best != null) {
+            found.hits.addAll(best);
+        }
+        return found;
+    }
+
+    /**
+     * Keeps a hit if it is among the best top
+     * @param best the heap, worst hit first
+     * @param hit the hit
+     */
+    private void offer(PriorityQueue<Hit> best, Hit hit) {
+        if(best.size() < top) {
+            best.add(hit);
+        } else if(WORSE.compare(hit, best.peek()) > 0) {
+            best.poll();
+            best.add(hit);
+        }
+    }
+
+    /**
+     * @param codes the codes of a chunk
+     * @param at where the window starts
+     * @param l the window length
+     * @param reverse reverse complement it
+     * @return the window in upper case letters as the motif reads
+     */
+    private static String site(byte[] codes, int at, int l, boolean reverse) {
+        char[] letters = new char[l];
+        for(int j = 0; j < l; j++) {
+            byte c = reverse ? codes[at + l - 1 - j] : codes[at + j];
+            if(reverse && c != SequenceStore.N) {
+                c ^= 1; // a-t, c-g
+            }
+            letters[j] = Character.toUpperCase(SequenceStore.decode(c));
+        }
+        return new String(letters);
+    }
+
+    /**
+     * Appends one hit line
+     */
+    private static void line(StringBuilder lines, String id, long position, boolean reverse, double score,
+            String site) {
+        lines.append(id).append('\t').append(position + 1).append('\t').append(reverse ? '-' : '+')
+                .append('\t').append(String.format(Locale.ROOT, "%.4f", score)).append('\t').append(site)
+                .append('\n');
+    }
+}
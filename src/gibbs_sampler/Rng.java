@@ -0,0 +1,107 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Seedable xoshiro256** random number generator.  One instance
+ * belongs to one chain and is never shared, so there is no synchronization.
+ * The same seed always gives the same numbers, and split() hands out an
+ * independent generator for another chain.  The four state words can be
+ * saved and restored, see Checkpoint.
+ */
+package gibbs_sampler;
+
+public class Rng {
+
+    private long s0, s1, s2, s3;
+
+    /**
+     * Seeds the four state words through SplitMix64 as xoshiro recommends
+     * @param seed any value, the same seed gives the same sequence
+     */
+    public Rng(long seed) {
+        long x = seed;
+        s0 = mix(x += 0x9E3779B97F4A7C15L);
+        s1 = mix(x += 0x9E3779B97F4A7C15L);
+        s2 = mix(x += 0x9E3779B97F4A7C15L);
+        s3 = mix(x += 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Continues a generator from a saved state
+     * @param state the four words from state()
+     * @return a generator giving the numbers the saved one would have
+     */
+    public static Rng restore(long[] state) {
+        Rng rng = new Rng(0);
+        rng.s0 = state[0];
+        rng.s1 = state[1];
+        rng.s2 = state[2];
+        rng.s3 = state[3];
+        return rng;
+    }
+
+    /**
+     * @return the four state words, a copy
+     */
+    public long[] state() {
+        return new long[] {s0, s1, s2, s3};
+    }
+
+    /**
+     * SplitMix64 finalizer
+     * @param z the value to scramble
+     * @return the scrambled value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return the next 64 random bits
+     */
+    public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    /**
+     * @return a uniform random number in [0, 1)
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Unbiased bounded draw (Lemire's multiply and reject)
+     * @param bound the exclusive upper bound, positive
+     * @return a uniform random number in [0, bound)
+     */
+    public int nextInt(int bound) {
+        long m = (nextLong() >>> 32) * bound;
+        long low = m & 0xFFFFFFFFL;
+        if(low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while(low < threshold) {
+                m = (nextLong() >>> 32) * bound;
+                low = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int)(m >>> 32);
+    }
+
+    /**
+     * @return a new generator whose numbers are independent from this one
+     */
+    public Rng split() {
+        return new Rng(nextLong());
+    }
+}
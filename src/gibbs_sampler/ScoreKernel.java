@@ -0,0 +1,144 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Scores motif windows against a log-odds position weight matrix.
+ * The matrix is flat, column j of code c sits at j * STRIDE + c, so a window
+ * score is a sum of l lookups.  Working in logs keeps long motifs from
+ * underflowing to zero the way the product of probabilities did.  The backend
+ * is chosen once at startup: the SIMD one (VectorScoreKernel) when the JVM runs
+ * with --add-modules jdk.incubator.vector, the scalar one otherwise or when
+ * -Dgibbs.kernel=scalar is given.  Both give the same scores.  For both strands
+ * a second, reverse complemented matrix is scored in the same pass.
+ */
+package gibbs_sampler;
+
+public abstract class ScoreKernel {
+
+    protected static final int STRIDE = 5; // one entry per code, N included
+
+    private static final boolean VECTOR = vectorAvailable(); // chosen at startup
+
+    /**
+     * Scores every window of length l of one sequence in a single pass
+     * @param codes the codes array of the sequence store
+     * @param from where the sequence starts in codes
+     * @param length the length of the sequence
+     * @param pwm the flat log-odds matrix
+     * @param l the motif length
+     * @param out receives the score of the window starting at i in out[i]
+     * @return the number of windows scored
+     */
+    public abstract int scoreWindows(byte[] codes, int from, int length, double[] pwm, int l, double[] out);
+
+    /**
+     * Scores every window of length l of one sequence on both strands in a
+     * single pass: against the matrix and against its reverse complement
+     * @param codes the codes array of the sequence store
+     * @param from where the sequence starts in codes
+     * @param length the length of the sequence
+     * @param pwm the flat log-odds matrix
+     * @param rc the reverse complement of pwm, see Profile.reverseLogOdds
+     * @param l the motif length
+     * @param out receives the forward score of window i in out[i] and its
+     * reverse strand score in out[n + i], n being the number of windows
+     * @return twice the number of windows
+     */
+    public abstract int scoreBothStrands(byte[] codes, int from, int length, double[] pwm, double[] rc,
+            int l, double[] out);
+
+    /**
+     * A kernel of the backend chosen at startup.  Kernels keep scratch space,
+     * so every chain makes its own
+     * @return a new kernel
+     */
+    public static ScoreKernel create() {
+        if(VECTOR) {
+            try {
+                return (ScoreKernel)Class.forName("gibbs_sampler.VectorScoreKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch(ReflectiveOperationException | LinkageError ex) {
+                // checked at startup, cannot happen
+            }
+        }
+        return new Scalar();
+    }
+
+    /**
+     * @return a new scalar kernel, whatever the chosen backend
+     */
+    public static ScoreKernel scalar() {
+        return new Scalar();
+    }
+
+    /**
+     * @return the name of the backend chosen at startup
+     */
+    public static String backend() {
+        return VECTOR ? "vector" : "scalar";
+    }
+
+    /**
+     * Tries to load the SIMD backend
+     * @return true if it loads and has more than one lane
+     */
+    private static boolean vectorAvailable() {
+        if("scalar".equals(System.getProperty("gibbs.kernel"))) {
+            return false;
+        }
+        try {
+            Class<?> vector = Class.forName("gibbs_sampler.VectorScoreKernel");
+            return (Integer)vector.getDeclaredMethod("lanes").invoke(null) > 1;
+        } catch(ReflectiveOperationException | LinkageError ex) { // incubator module not added
+            return false;
+        }
+    }
+
+    /**
+     * Scores one window
+     * @param codes the codes array of the sequence store
+     * @param at where the window starts in codes
+     * @param pwm the flat log-odds matrix
+     * @param l the motif length
+     * @return the log-odds score of the window
+     */
+    public static double scoreWindow(byte[] codes, int at, double[] pwm, int l) {
+        double score = 0;
+        for(int j = 0, k = 0; j < l; j++, k += STRIDE) { // for every motif letter
+            score += pwm[k + codes[at + j]];
+        }
+        return score;
+    }
+
+    /**
+     * One window after the other, l lookups each
+     */
+    static class Scalar extends ScoreKernel {
+        @Override
+        public int scoreWindows(byte[] codes, int from, int length, double[] pwm, int l, double[] out) {
+            int n = length - l + 1;
+            for(int i = 0; i < n; i++) { // for every l word
+                out[i] = scoreWindow(codes, from + i, pwm, l);
+            }
+            return n < 0 ? 0 : n;
+        }
+
+        @Override
+        public int scoreBothStrands(byte[] codes, int from, int length, double[] pwm, double[] rc,
+                int l, double[] out) {
+            int n = length - l + 1;
+            for(int i = 0; i < n; i++) { // for every l word
+                double forward = 0;
+                double reverse = 0;
+                for(int j = 0, k = 0; j < l; j++, k += STRIDE) { // one lookup per strand
+                    byte c = codes[from + i + j];
+                    forward += pwm[k + c];
+                    reverse += rc[k + c];
+                }
+                out[i] = forward;
+                out[n + i] = reverse;
+            }
+            return n < 0 ? 0 : 2 * n;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Holds the set S of sequences as nucleotide codes packed into one
+ * contiguous byte array.  Codes follow the A, T, C, G order of the theta arrays
+ * so a code can index THETA_ATCG and THETA_0_ATCG directly.  The store is read
+ * only once built; motif positions are kept apart from it as plain offsets.
+ * Letters other than a, t, c and g are kept as N and never sit in a motif.
+ */
+package gibbs_sampler;
+
+import java.util.Arrays;
+
+public class SequenceStore {
+
+    protected static final byte A = 0;
+    protected static final byte T = 1;
+    protected static final byte C = 2;
+    protected static final byte G = 3;
+    protected static final byte N = 4; // any symbol that is not a nucleotide
+
+    public static final int MAX_LETTERS = Integer.MAX_VALUE - 8; // largest array the JVM makes
+
+    private static final char[] LETTERS = {'a', 't', 'c', 'g', 'n'};
+    private static final byte[] ASCII = new byte[256]; // code of every byte
+
+    static {
+        Arrays.fill(ASCII, N);
+        for(char c : "atcg".toCharArray()) {
+            ASCII[c] = encode(c);
+            ASCII[Character.toUpperCase(c)] = encode(c);
+        }
+    }
+
+    private final byte[] codes; // all sequences back to back
+    private final int[] starts; // start of sequence i in codes, starts[size] is the end
+    private final String[] ids; // name of each sequence, null when the input had none
+    private KmerIndex kmers; // made on the first seeded run, see KmerIndex.of
+
+    private SequenceStore(byte[] codes, int[] starts, String[] ids) {
+        this.codes = codes;
+        this.starts = starts;
+        this.ids = ids;
+    }
+
+    /**
+     * @return the number of sequences in the store
+     */
+    public int size() {
+        return starts.length - 1;
+    }
+
+    /**
+     * @param seq the sequence index
+     * @return the name of the sequence from the input, or null if it had none
+     */
+    public String id(int seq) {
+        return ids == null ? null : ids[seq];
+    }
+
+    /**
+     * @param seq the sequence index
+     * @return the number of nucleotides in the sequence
+     */
+    public int length(int seq) {
+        return starts[seq + 1] - starts[seq];
+    }
+
+    /**
+     * @param seq the sequence index
+     * @return where the sequence begins in the codes array
+     */
+    public int offset(int seq) {
+        return starts[seq];
+    }
+
+    /**
+     * The backing array of all codes.  Shared, never modify it.
+     * @return the codes of every sequence back to back
+     */
+    public byte[] codes() {
+        return codes;
+    }
+
+    /**
+     * @param seq the sequence index
+     * @param pos the position in the sequence
+     * @return the code at the position
+     */
+    public byte code(int seq, int pos) {
+        return codes[starts[seq] + pos];
+    }
+
+    /**
+     * The k-mer index of this store.  Kept here so it lives only as long as
+     * the store does
+     * @return the index, made when first asked for
+     */
+    synchronized KmerIndex kmers() {
+        if(kmers == null) {
+            kmers = new KmerIndex(this);
+        }
+        return kmers;
+    }
+
+    /**
+     * @return the total number of codes in the store
+     */
+    public int totalLength() {
+        return starts[starts.length - 1];
+    }
+
+    /**
+     * Encodes one letter.  Case is ignored, anything else than a nucleotide is N
+     * @param c the letter
+     * @return the code of the letter
+     */
+    public static byte encode(char c) {
+        switch(c) {
+            case 'a': case 'A': return A;
+            case 't': case 'T': return T;
+            case 'c': case 'C': return C;
+            case 'g': case 'G': return G;
+            default: return N;
+        }
+    }
+
+    /**
+     * Encodes one byte of text input, as encode(char)
+     * @param b the byte
+     * @return the code of the byte
+     */
+    public static byte encode(byte b) {
+        return ASCII[b & 0xFF];
+    }
+
+    /**
+     * Checks a window for letters that are not nucleotides
+     * @param seq the sequence index
+     * @param pos the window start
+     * @param l the window length
+     * @return true when every letter of the window is a, t, c or g
+     */
+    public boolean clean(int seq, int pos, int l) {
+        int at = starts[seq] + pos;
+        for(int j = 0; j < l; j++) {
+            if(codes[at + j] == N) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param code the nucleotide code
+     * @return the lower case letter for the code
+     */
+    public static char decode(byte code) {
+        return LETTERS[code];
+    }
+
+    /**
+     * Decodes a piece of a sequence into a String.  Only meant for output
+     * @param seq the sequence index
+     * @param from the first position (including)
+     * @param to the last position (excluding)
+     * @param upper whether to upper case the letters
+     * @return the decoded piece
+     */
+    public String decode(int seq, int from, int to, boolean upper) {
+        char[] out = new char[to - from];
+        for(int i = from; i < to; i++) {
+            char c = decode(codes[starts[seq] + i]);
+            out[i - from] = upper ? Character.toUpperCase(c) : c;
+        }
+        return new String(out);
+    }
+
+    /**
+     * Decodes the reverse complement of a piece of a sequence, as the reverse
+     * strand reads it.  Only meant for output
+     * @param seq the sequence index
+     * @param from the first position (including)
+     * @param to the last position (excluding)
+     * @param upper whether to upper case the letters
+     * @return the decoded piece, from to - 1 down to from
+     */
+    public String decodeReverse(int seq, int from, int to, boolean upper) {
+        char[] out = new char[to - from];
+        for(int i = from; i < to; i++) {
+            byte code = codes[starts[seq] + i];
+            char c = decode(code == N ? N : (byte)(code ^ 1));
+            out[to - 1 - i] = upper ? Character.toUpperCase(c) : c;
+        }
+        return new String(out);
+    }
+
+    /**
+     * Accumulates sequences into one array, then hands out the store
+     */
+    public static class Builder {
+        private byte[] codes;
+        private int[] starts = new int[64];
+        private String[] ids; // made on the first id given
+        private String id; // name of the sequence under construction
+        private int size = 0; // finished sequences
+        private int end = 0; // next free code
+
+        public Builder() {
+            this(1 << 12);
+        }
+
+        /**
+         * @param capacity how many codes to make room for up front
+         */
+        public Builder(int capacity) {
+            codes = new byte[Math.max(capacity, 16)];
+        }
+
+        /**
+         * Names the sequence under construction
+         * @param id the name to keep for the output
+         */
+        public void id(String id) {
+            this.id = id;
+        }
+
+        /**
+         * Appends one code to the sequence under construction
+         * @param code the code to add
+         */
+        public void append(byte code) {
+            if(end == codes.length) {
+                if(end == MAX_LETTERS) {
+                    throw new IllegalArgumentException("Input exceeds " + MAX_LETTERS
+                            + " letters, the most one store holds");
+                }
+                codes = Arrays.copyOf(codes, (int)Math.min(MAX_LETTERS, 2L * codes.length));
+            }
+            codes[end++] = code;
+        }
+
+        /**
+         * Appends the letters of a line to the sequence under construction
+         * @param line the letters to add
+         */
+        public void append(CharSequence line) {
+            for(int i = 0; i < line.length(); i++) {
+                append(encode(line.charAt(i)));
+            }
+        }
+
+        /**
+         * Closes the sequence under construction.  Empty sequences are dropped
+         */
+        public void endSequence() {
+            if(end == starts[size]) {
+                id = null;
+                return; // nothing appended
+            }
+            if(size + 2 > starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            if(id != null && ids == null) {
+                ids = new String[starts.length];
+            }
+            if(ids != null) {
+                if(ids.length < starts.length) {
+                    ids = Arrays.copyOf(ids, starts.length);
+                }
+                ids[size] = id;
+            }
+            id = null;
+            starts[++size] = end;
+        }
+
+        /**
+         * @return the store holding every finished sequence
+         */
+        public SequenceStore build() {
+            endSequence();
+            return new SequenceStore(end == codes.length ? codes : Arrays.copyOf(codes, end),
+                    Arrays.copyOf(starts, size + 1), ids == null ? null : Arrays.copyOf(ids, size));
+        }
+    }
+}
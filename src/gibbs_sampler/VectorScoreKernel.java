@@ -0,0 +1,101 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: SIMD backend of ScoreKernel on the incubating Vector API.  Each
+ * vector holds the scores of as many neighbouring windows as there are lanes;
+ * for every motif column the letters under the windows are compared with each
+ * code and the matching matrix entry is added to the lanes that match.  Every
+ * lane adds exactly the entries the scalar loop adds, in the same order, so
+ * the scores are the same.  Only loaded through ScoreKernel.create.
+ */
+package gibbs_sampler;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+class VectorScoreKernel extends ScoreKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private double[] letters = new double[64]; // codes of the sequence as lanes
+
+    /**
+     * @return the number of windows scored per instruction
+     */
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    /**
+     * Copies the codes of a sequence into the lanes array
+     * @param codes the codes array of the sequence store
+     * @param from where the sequence starts in codes
+     * @param length the length of the sequence
+     */
+    private void load(byte[] codes, int from, int length) {
+        if(letters.length < length) {
+            letters = new double[Math.max(length, letters.length * 2)];
+        }
+        for(int i = 0; i < length; i++) {
+            letters[i] = codes[from + i];
+        }
+    }
+
+    @Override
+    public int scoreWindows(byte[] codes, int from, int length, double[] pwm, int l, double[] out) {
+        int n = length - l + 1;
+        if(n <= 0) {
+            return 0;
+        }
+        load(codes, from, length);
+        int lanes = SPECIES.length();
+        int i = 0;
+        for(; i <= n - lanes; i += lanes) { // lanes windows at a time
+            DoubleVector score = DoubleVector.zero(SPECIES);
+            for(int j = 0, k = 0; j < l; j++, k += STRIDE) { // for every motif letter
+                DoubleVector letter = DoubleVector.fromArray(SPECIES, letters, i + j);
+                for(int c = 0; c < STRIDE; c++) {
+                    score = score.add(pwm[k + c], letter.eq(c));
+                }
+            }
+            score.intoArray(out, i);
+        }
+        for(; i < n; i++) { // windows left over
+            out[i] = scoreWindow(codes, from + i, pwm, l);
+        }
+        return n;
+    }
+
+    @Override
+    public int scoreBothStrands(byte[] codes, int from, int length, double[] pwm, double[] rc,
+            int l, double[] out) {
+        int n = length - l + 1;
+        if(n <= 0) {
+            return 0;
+        }
+        load(codes, from, length);
+        int lanes = SPECIES.length();
+        int i = 0;
+        for(; i <= n - lanes; i += lanes) { // lanes windows at a time, both strands
+            DoubleVector forward = DoubleVector.zero(SPECIES);
+            DoubleVector reverse = DoubleVector.zero(SPECIES);
+            for(int j = 0, k = 0; j < l; j++, k += STRIDE) { // for every motif letter
+                DoubleVector letter = DoubleVector.fromArray(SPECIES, letters, i + j);
+                for(int c = 0; c < STRIDE; c++) {
+                    VectorMask<Double> match = letter.eq(c);
+                    forward = forward.add(pwm[k + c], match);
+                    reverse = reverse.add(rc[k + c], match);
+                }
+            }
+            forward.intoArray(out, i);
+            reverse.intoArray(out, n + i);
+        }
+        for(; i < n; i++) { // windows left over
+            out[i] = scoreWindow(codes, from + i, pwm, l);
+            out[n + i] = scoreWindow(codes, from + i, rc, l);
+        }
+        return 2 * n;
+    }
+}
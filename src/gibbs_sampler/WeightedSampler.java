@@ -0,0 +1,73 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Draws an index with probability proportional to its weight.
+ * Weights are given as logs and turned into one running sum, so loading costs
+ * O(n) and a draw is a binary search.  The running sum array is kept between
+ * loads and only grows.
+ */
+package gibbs_sampler;
+
+public class WeightedSampler {
+
+    private double[] cumulative = new double[16]; // cumulative[i] = weight of 0..i
+    private int n; // number of loaded weights
+
+    /**
+     * Loads a new set of log weights
+     * @param logWeights the log weight of each index
+     * @param n how many weights to take from logWeights
+     */
+    public void load(double[] logWeights, int n) {
+        load(logWeights, n, 1);
+    }
+
+    /**
+     * Loads a new set of log weights, each raised to a power first
+     * @param logWeights the log weight of each index
+     * @param n how many weights to take from logWeights
+     * @param power what to raise the weights to, 1 / temperature
+     */
+    public void load(double[] logWeights, int n, double power) {
+        if(cumulative.length < n) {
+            cumulative = new double[Math.max(n, cumulative.length * 2)];
+        }
+        double max = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < n; i++) { // largest weight, to keep exp from overflowing
+            max = Math.max(max, logWeights[i]);
+        }
+        double sum = 0;
+        if(max == Double.NEGATIVE_INFINITY) { // nothing possible, fall back to uniform
+            for(int i = 0; i < n; i++) {
+                cumulative[i] = ++sum;
+            }
+        } else {
+            for(int i = 0; i < n; i++) {
+                sum += Math.exp((logWeights[i] - max) * power);
+                cumulative[i] = sum;
+            }
+        }
+        this.n = n;
+    }
+
+    /**
+     * Draws an index from the loaded weights
+     * @param u a uniform random number in [0, 1)
+     * @return the index drawn
+     */
+    public int draw(double u) {
+        double target = u * cumulative[n - 1];
+        int lo = 0;
+        int hi = n - 1;
+        while(lo < hi) { // first index whose running sum is past target
+            int mid = (lo + hi) >>> 1;
+            if(cumulative[mid] <= target) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
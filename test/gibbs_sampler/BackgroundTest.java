@@ -0,0 +1,143 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Checks the Markov background against a direct computation:
+ * the probabilities are counted again from the letters as strings, and the
+ * likelihood of every window, read off the running totals, must equal the
+ * product of its letters given the letters before each, up to the order and
+ * back to the last N or the start of the sequence.
+ */
+package gibbs_sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class BackgroundTest {
+
+    private static final int ORDER = 2;
+    private static final int L = 5;
+    private static final double DELTA = 1e-9;
+    private static final String[] SEQUENCES = {
+        "acgtacgtaagcttacgnnacgatcgatcgaaaattt",
+        "gggcccgggatatatnacgt",
+        "tttttttttacgtacgcgcgcgatatagcg"
+    };
+
+    /**
+     * @return the sequences as a store
+     */
+    private static SequenceStore store() {
+        SequenceStore.Builder S = new SequenceStore.Builder();
+        for(String s : SEQUENCES) {
+            S.append(s);
+            S.endSequence();
+        }
+        return S.build();
+    }
+
+    /**
+     * @return how often each context, a string of up to ORDER letters, is
+     * followed by each letter, the context appended with the letter
+     */
+    private static Map<String, Integer> counts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for(String s : SEQUENCES) {
+            for(String run : s.split("n+")) {
+                for(int k = 0; k < run.length(); k++) {
+                    for(int m = 0; m <= Math.min(k, ORDER); m++) {
+                        counts.merge(run.substring(k - m, k + 1), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return log Pr(letter | context) with a pseudocount per letter
+     */
+    private static double logp(Map<String, Integer> counts, String context, char letter) {
+        double total = 4;
+        for(char b : "atcg".toCharArray()) {
+            total += counts.getOrDefault(context + b, 0);
+        }
+        return Math.log((counts.getOrDefault(context + letter, 0) + 1) / total);
+    }
+
+    /**
+     * @return the log likelihood of the window, each letter given the ORDER
+     * letters before it, fewer after the start or an N
+     */
+    private static double window(Map<String, Integer> counts, String s, int z) {
+        double sum = 0;
+        for(int k = z; k < z + L; k++) {
+            int begin = Math.max(k - ORDER, s.lastIndexOf('n', k - 1) + 1);
+            sum += logp(counts, s.substring(begin, k), s.charAt(k));
+        }
+        return sum;
+    }
+
+    @Test
+    public void windowsMatchDirectComputation() {
+        SequenceStore S = store();
+        Background background = Background.of(S, ORDER);
+        Map<String, Integer> counts = counts();
+        assertEquals(ORDER, background.order());
+        for(char b : "atcg".toCharArray()) {
+            assertEquals(Math.exp(logp(counts, "", b)), background.frequency(SequenceStore.encode(b)), DELTA);
+        }
+        int windows = 0;
+        for(int i = 0; i < S.size(); i++) {
+            for(int z = 0; z + L <= S.length(i); z++) {
+                if(S.clean(i, z, L)) {
+                    assertEquals("sequence " + i + " window " + z, window(counts, SEQUENCES[i], z),
+                            background.window(S.offset(i) + z, L), DELTA);
+                    windows++;
+                }
+            }
+        }
+        assertFalse(windows == 0);
+    }
+
+    @Test
+    public void subtractTakesOffEveryWindow() {
+        SequenceStore S = store();
+        Background background = Background.of(S, ORDER);
+        int n = S.length(2) - L + 1;
+        double[] scores = new double[n + 3];
+        for(int i = 0; i < scores.length; i++) {
+            scores[i] = i;
+        }
+        background.subtract(S.offset(2), n, L, scores, 3);
+        for(int i = 0; i < 3; i++) {
+            assertEquals(i, scores[i], 0);
+        }
+        for(int z = 0; z < n; z++) {
+            assertEquals(3 + z - window(counts(), SEQUENCES[2], z), scores[3 + z], DELTA);
+        }
+    }
+
+    @Test
+    public void orderZeroIsLetterFrequencies() {
+        Background background = Background.of(store(), 0);
+        int[] letters = new int[4];
+        int total = 0;
+        for(String s : SEQUENCES) {
+            for(char c : s.toCharArray()) {
+                if(c != 'n') {
+                    letters[SequenceStore.encode(c)]++;
+                    total++;
+                }
+            }
+        }
+        assertFalse(background.markov());
+        for(int b = 0; b < 4; b++) {
+            assertEquals((double)letters[b] / total, background.frequency(b), DELTA);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Checks the checkpoint file format: a saved state reads back
+ * the same, a damaged or cut file is refused, and a run that stops and is
+ * resumed ends exactly where one run without stopping ends.
+ */
+package gibbs_sampler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CheckpointTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * @return twenty random sequences of sixty letters
+     */
+    private static SequenceStore sequences() {
+        Rng rng = new Rng(7);
+        SequenceStore.Builder S = new SequenceStore.Builder();
+        for(int i = 0; i < 20; i++) {
+            for(int k = 0; k < 60; k++) {
+                S.append((byte)rng.nextInt(4));
+            }
+            S.endSequence();
+        }
+        return S.build();
+    }
+
+    /**
+     * @return the state of a chain on both strands some way into its run
+     */
+    private static Checkpoint.State state(SequenceStore S) {
+        Chain chain = new Chain(S, 8, new Rng(11)).bothStrands(true).trackBest();
+        Convergence.Monitor monitor = new Convergence().tolerance(1e-3, 10).start(S.size(), chain.score());
+        for(int i = 0; i < 300; i++) {
+            chain.step();
+            monitor.done(chain.score());
+        }
+        return new Checkpoint.State(chain, monitor);
+    }
+
+    /**
+     * @return the bytes write puts in a file before the CRC
+     */
+    private static byte[] bytes(Checkpoint.State state) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        state.write(new DataOutputStream(out));
+        return out.toByteArray();
+    }
+
+    @Test
+    public void stateReadsBackTheSame() throws IOException {
+        SequenceStore S = sequences();
+        Checkpoint.State saved = state(S);
+        Path file = tmp.getRoot().toPath().resolve("chain-0.ckpt");
+        Checkpoint.write(file, saved);
+        Checkpoint.State read = Checkpoint.read(file);
+        assertArrayEquals(bytes(saved), bytes(read));
+        read.check(S, new GibbsSampler.Config().motifLength(8).bothStrands(true));
+        assertEquals(bytes(saved).length + Long.BYTES, Files.size(file)); // the CRC after the state
+        assertTrue(Files.notExists(file.resolveSibling("chain-0.ckpt.tmp")));
+    }
+
+    @Test
+    public void damagedFileIsRefused() throws IOException {
+        Path file = tmp.getRoot().toPath().resolve("chain-0.ckpt");
+        Checkpoint.write(file, state(sequences()));
+        byte[] content = Files.readAllBytes(file);
+        content[content.length / 2] ^= 0x10; // one bit flipped in the motif starts
+        Files.write(file, content);
+        try {
+            Checkpoint.read(file);
+            fail("A damaged checkpoint was read");
+        } catch(IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("checksum"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void cutFileIsRefused() throws IOException {
+        Path file = tmp.getRoot().toPath().resolve("chain-0.ckpt");
+        Checkpoint.write(file, state(sequences()));
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 3));
+        Checkpoint.read(file);
+    }
+
+    @Test
+    public void resumedRunEndsLikeOneRun() throws IOException {
+        SequenceStore S = sequences();
+        Path dir = tmp.getRoot().toPath().resolve("run");
+        GibbsSampler.Config config = new GibbsSampler.Config().motifLength(8).seed(5).bothStrands(true)
+                .convergence(new Convergence().stall(0).maxSweeps(40)).checkpoints(dir, 5);
+        GibbsSampler.Result whole = new GibbsSampler(config).run(S);
+        // the saved state of the same chain killed after 15 sweeps, as Checkpoint.run leaves it
+        Chain chain = config.chain(S, new Rng(5).split(), 0).trackBest();
+        Convergence.Monitor monitor = config.convergence.start(S.size(), chain.score());
+        for(int i = 0; i < 15 * S.size(); i++) {
+            chain.step();
+            monitor.done(chain.score());
+        }
+        Checkpoint.write(dir.resolve("chain-0.ckpt"), new Checkpoint.State(chain, monitor));
+        // another seed, the saved generator goes on in its place
+        GibbsSampler.Result resumed = new GibbsSampler(config.copy().seed(99).resume(true)).run(S);
+        assertEquals(whole.score(), resumed.score(), 0);
+        assertEquals(whole.iterations(), resumed.iterations());
+        assertArrayEquals(whole.best().Z(), resumed.best().Z());
+        assertArrayEquals(whole.best().reverse(), resumed.best().reverse());
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Runs a distributed chain with two workers over localhost, in
+ * threads of this JVM.  The motifs must come back in the order of the input,
+ * the score of the summed counts must be the score of those motifs over the
+ * whole set, and the same seed must give the same run.  A worker reads its
+ * shard only, every second sequence.
+ */
+package gibbs_sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DistributedTest {
+
+    private static final int L = 8;
+    private static final int WORKERS = 2;
+    private static final int SWEEPS = 15;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * Writes thirty named sequences of 50 to 120 letters, a skewed mix
+     */
+    private static Path input(Path file) throws IOException {
+        Rng rng = new Rng(21);
+        try(Writer w = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            for(int i = 0; i < 30; i++) {
+                w.write(">s" + i + "\n");
+                for(int k = 50 + rng.nextInt(71); k > 0; k--) {
+                    double u = rng.nextDouble();
+                    w.write(u < 0.4 ? 'a' : u < 0.55 ? 't' : u < 0.85 ? 'c' : 'g');
+                }
+                w.write('\n');
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Runs the coordinator here and the workers in threads
+     */
+    private static Distributed.Result run(Path input, GibbsSampler.Config config) throws IOException {
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        try(ServerSocket server = new ServerSocket(0, WORKERS, InetAddress.getLoopbackAddress())) {
+            for(int w = 0; w < WORKERS; w++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        Distributed.work(server.getInetAddress().getHostAddress(), server.getLocalPort());
+                    } catch(IOException | RuntimeException ex) {
+                        synchronized(failures) {
+                            failures.add(ex);
+                        }
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            Distributed.Result result = Distributed.coordinate(server, input.toString(), config, WORKERS);
+            for(Thread worker : workers) {
+                worker.join(10000);
+            }
+            if(!failures.isEmpty()) {
+                fail("A worker failed: " + failures.get(0));
+            }
+            return result;
+        } catch(InterruptedException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    @Test
+    public void twoWorkersScoreTheMotifsTheySend() throws IOException {
+        Path input = input(tmp.getRoot().toPath().resolve("in.fa"));
+        GibbsSampler.Config config = new GibbsSampler.Config().motifLength(L).seed(8).bothStrands(true)
+                .convergence(new Convergence().stall(0).maxSweeps(SWEEPS));
+        Distributed.Result result = run(input, config);
+        SequenceStore S = GibbsSampler.load(input.toString());
+        assertEquals(WORKERS, result.workers());
+        assertEquals(SWEEPS, result.sweeps());
+        assertEquals(Convergence.Reason.MAX_SWEEPS, result.reason());
+        assertEquals(S.size(), result.motifs().size());
+        int[] Z = new int[S.size()];
+        boolean[] reverse = new boolean[S.size()];
+        for(int i = 0; i < S.size(); i++) { // motif, name, 1-based start, strand
+            String[] f = result.motifs().get(i).split("\t");
+            assertEquals(S.id(i), f[1]);
+            Z[i] = Integer.parseInt(f[2]) - 1;
+            reverse[i] = f[3].equals("-");
+            assertEquals(reverse[i] ? S.decodeReverse(i, Z[i], Z[i] + L, true)
+                    : S.decode(i, Z[i], Z[i] + L, true), f[0]);
+        }
+        Profile whole = new Profile(S, Z, reverse, L, null);
+        assertEquals(whole.alignmentScore() / Math.log(10), result.score(), 1e-9);
+        // the same seed, the same run, however the threads are scheduled
+        assertEquals(result.motifs(), run(input, config).motifs());
+    }
+
+    @Test
+    public void workerReadsItsShardOnly() throws IOException {
+        Path input = input(tmp.getRoot().toPath().resolve("in.fa"));
+        SequenceStore S = GibbsSampler.load(input.toString());
+        SequenceStore shard = GibbsSampler.load(input.toString(), 1, 3);
+        assertEquals(10, shard.size());
+        for(int i = 0; i < shard.size(); i++) {
+            assertEquals(S.id(1 + 3 * i), shard.id(i));
+            assertEquals(S.decode(1 + 3 * i, 0, S.length(1 + 3 * i), false),
+                    shard.decode(i, 0, shard.length(i), false));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedFlagsAreRefused() throws IOException {
+        try(ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Distributed.coordinate(server, "unused", new GibbsSampler.Config().motifLength(L).chains(3), 1);
+        }
+    }
+}
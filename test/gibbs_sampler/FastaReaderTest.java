@@ -0,0 +1,83 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Checks FASTA parsing: headers give the names, wrapped lines
+ * are joined, IUPAC codes become N, Windows line ends and records without
+ * letters are handled, and a gzipped file reads the same as a plain one.
+ */
+package gibbs_sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FastaReaderTest {
+
+    private static final String FASTA = "\n>chr1 some description\n"
+            + "ACGTAC\n"
+            + "gtacgt\n"
+            + "AC\n"
+            + "> chr2\tafter a tab\r\n"
+            + "ACRYKMSWBDHVN\r\n"
+            + "ac gt\r\n"
+            + ">empty\n"
+            + ">chr3\n"
+            + "tttt";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * Checks a store read from FASTA
+     */
+    private static void check(SequenceStore S) {
+        assertEquals(3, S.size());
+        assertEquals("chr1", S.id(0));
+        assertEquals("acgtacgtacgtac", S.decode(0, 0, S.length(0), false));
+        assertEquals("chr2", S.id(1));
+        assertEquals("acnnnnnnnnnnnacgt", S.decode(1, 0, S.length(1), false));
+        assertEquals("chr3", S.id(2)); // the record without letters is dropped
+        assertEquals("tttt", S.decode(2, 0, S.length(2), false));
+    }
+
+    @Test
+    public void plainFile() throws IOException {
+        Path file = tmp.getRoot().toPath().resolve("in.fa");
+        Files.write(file, FASTA.getBytes(StandardCharsets.US_ASCII));
+        assertTrue(FastaReader.isFasta(file));
+        check(FastaReader.read(file));
+        check(GibbsSampler.load(file.toString()));
+    }
+
+    @Test
+    public void gzippedFile() throws IOException {
+        Path file = tmp.getRoot().toPath().resolve("in.fa.gz");
+        try(OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(FASTA.getBytes(StandardCharsets.US_ASCII));
+        }
+        assertTrue(FastaReader.isFasta(file));
+        check(FastaReader.read(file));
+    }
+
+    @Test
+    public void linesAreNoFasta() throws IOException {
+        Path file = tmp.getRoot().toPath().resolve("in.txt");
+        Files.write(file, "acgtac\n\nggrtt\n".getBytes(StandardCharsets.US_ASCII));
+        assertFalse(FastaReader.isFasta(file));
+        SequenceStore S = GibbsSampler.load(file.toString());
+        assertEquals(2, S.size());
+        assertEquals("acgtac", S.decode(0, 0, S.length(0), false));
+        assertEquals("ggntt", S.decode(1, 0, S.length(1), false));
+    }
+}
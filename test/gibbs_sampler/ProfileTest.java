@@ -0,0 +1,153 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Checks the scores of motifs on both strands against a hand
+ * computation on a background whose A and T, and C and G, frequencies differ,
+ * so a complement scored against the wrong letter shows.  Withdrawing and
+ * placing every motif again must leave the counts as they were.
+ */
+package gibbs_sampler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ProfileTest {
+
+    private static final int L = 6;
+    private static final double DELTA = 1e-9;
+
+    /**
+     * @return eight sequences of forty letters, half of them a, few t and g
+     */
+    private static SequenceStore skewed() {
+        Rng rng = new Rng(3);
+        SequenceStore.Builder S = new SequenceStore.Builder();
+        for(int i = 0; i < 8; i++) {
+            for(int k = 0; k < 40; k++) {
+                double u = rng.nextDouble();
+                S.append(u < 0.5 ? SequenceStore.A : u < 0.6 ? SequenceStore.T
+                        : u < 0.9 ? SequenceStore.C : SequenceStore.G);
+            }
+            S.endSequence();
+        }
+        return S.build();
+    }
+
+    /**
+     * The letters outside the motifs, read straight off S
+     */
+    private static double[] thetaZero(SequenceStore S, int[] Z) {
+        int[] outside = new int[4];
+        for(int i = 0; i < S.size(); i++) {
+            for(int k = 0; k < S.length(i); k++) {
+                if(k < Z[i] || k >= Z[i] + L) {
+                    outside[S.code(i, k)]++;
+                }
+            }
+        }
+        double count = outside[0] + outside[1] + outside[2] + outside[3];
+        double[] zero = new double[4];
+        for(int b = 0; b < 4; b++) {
+            zero[b] = outside[b] / count;
+        }
+        return zero;
+    }
+
+    /**
+     * Theta with pseudocounts, a reverse motif counted as its reverse complement
+     */
+    private static double[][] theta(SequenceStore S, int[] Z, boolean[] reverse, double[] zero) {
+        double[][] q = new double[4][L];
+        for(int i = 0; i < S.size(); i++) {
+            for(int j = 0; j < L; j++) {
+                byte c = S.code(i, Z[i] + j);
+                if(reverse[i]) {
+                    q[c ^ 1][L - 1 - j]++;
+                } else {
+                    q[c][j]++;
+                }
+            }
+        }
+        for(int b = 0; b < 4; b++) {
+            for(int j = 0; j < L; j++) {
+                q[b][j] = (q[b][j] + zero[b]) / (S.size() + 1);
+            }
+        }
+        return q;
+    }
+
+    /**
+     * The natural log likelihood ratio of one window: theta of the motif
+     * letters against theta zero of the letters read off the sequence
+     */
+    private static double window(SequenceStore S, int seq, int z, boolean reverse, double[][] q,
+            double[] zero) {
+        double sum = 0;
+        for(int j = 0; j < L; j++) {
+            byte c = S.code(seq, z + j);
+            double motif = reverse ? q[c ^ 1][L - 1 - j] : q[c][j];
+            sum += Math.log(motif / zero[c]);
+        }
+        return sum;
+    }
+
+    @Test
+    public void bothStrandScoreMatchesHandComputation() {
+        SequenceStore S = skewed();
+        int[] Z = {0, 5, 10, 15, 20, 25, 30, 34};
+        boolean[] reverse = {false, true, true, false, true, false, true, true};
+        Profile profile = new Profile(S, Z, reverse, L, null);
+        double[] zero = thetaZero(S, Z);
+        double[][] q = theta(S, Z, reverse, zero);
+        double expected = 0;
+        for(int i = 0; i < S.size(); i++) {
+            expected += window(S, i, Z[i], reverse[i], q, zero);
+        }
+        assertArrayEquals(zero, profile.thetaZero(), DELTA);
+        assertEquals(expected, profile.alignmentScore(), DELTA);
+        assertEquals(expected, profile.score(profile.counts(), profile.backgroundCounts(), S.size(), 0), DELTA);
+        // every window of a sequence on both strands, as Chain.step scores them
+        for(ScoreKernel kernel : new ScoreKernel[] {ScoreKernel.scalar(), ScoreKernel.create()}) {
+            double[] scores = new double[2 * S.length(2)];
+            int words = kernel.scoreBothStrands(S.codes(), S.offset(2), S.length(2), profile.logOdds(),
+                    profile.reverseLogOdds(), L, scores) / 2;
+            for(int z = 0; z < words; z++) {
+                assertEquals(window(S, 2, z, false, q, zero), scores[z], DELTA);
+                assertEquals(window(S, 2, z, true, q, zero), scores[words + z], DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void motifsMoveBackAndForthOnBothStrands() {
+        SequenceStore S = skewed();
+        int[] Z = {3, 0, 34, 7, 12, 19, 1, 28};
+        boolean[] reverse = {true, false, true, true, false, false, true, false};
+        Profile profile = new Profile(S, Z, reverse, L, null);
+        double score = profile.alignmentScore();
+        for(int i = 0; i < S.size(); i++) {
+            profile.withdraw(i, Z[i], reverse[i]);
+        }
+        assertArrayEquals(profile.letters(), profile.backgroundCounts());
+        assertEquals(0, profile.alignmentScore(), DELTA);
+        for(int i = S.size() - 1; i >= 0; i--) {
+            profile.place(i, Z[i], reverse[i]);
+        }
+        Profile fresh = new Profile(S, Z, reverse, L, null);
+        for(int b = 0; b < 5; b++) {
+            assertArrayEquals(fresh.counts()[b], profile.counts()[b]);
+        }
+        assertArrayEquals(fresh.backgroundCounts(), profile.backgroundCounts());
+        assertEquals(score, profile.alignmentScore(), DELTA);
+        // a motif on the reverse strand reads as the reverse complement of its window
+        String window = S.decode(0, Z[0], Z[0] + L, false);
+        StringBuilder rc = new StringBuilder();
+        for(int j = L - 1; j >= 0; j--) {
+            rc.append("tagc".charAt("atcg".indexOf(window.charAt(j))));
+        }
+        assertEquals(rc.toString(), S.decodeReverse(0, Z[0], Z[0] + L, false));
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Checks the genome scan against a brute force one, window by
+ * window on both strands, over a sequence of several chunks with sites
+ * planted across the chunk borders and a skewed background.
+ */
+package gibbs_sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PwmScannerTest {
+
+    private static final int L = 8;
+    private static final int CHUNK = 1 << 20; // letters per scan task, see PwmScanner
+    private static final double[] BACKGROUND = {0.4, 0.2, 0.3, 0.1};
+    private static final String SITE = "acgtgcat";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /**
+     * @return a matrix that favours SITE
+     */
+    private static double[][] columns() {
+        Rng rng = new Rng(5);
+        double[][] columns = new double[L][4];
+        for(int j = 0; j < L; j++) {
+            for(int b = 0; b < 4; b++) {
+                columns[j][b] = rng.nextDouble() - 1;
+            }
+            columns[j][SequenceStore.encode(SITE.charAt(j))] = 2;
+        }
+        return columns;
+    }
+
+    /**
+     * Writes chr1, past two chunk borders, with SITE across each border on
+     * one strand or the other, and a short chr2; some N on the way
+     */
+    private static Path genome(Path file) throws IOException {
+        Rng rng = new Rng(9);
+        String reverse = new StringBuilder(SITE).reverse().toString()
+                .replace('a', 'x').replace('t', 'a').replace('x', 't')
+                .replace('c', 'x').replace('g', 'c').replace('x', 'g');
+        StringBuilder chr1 = new StringBuilder();
+        for(int k = 0; k < 2 * CHUNK + 5000; k++) {
+            chr1.append(k % 100000 == 77 ? 'n' : "atcg".charAt(rng.nextInt(4)));
+        }
+        chr1.replace(CHUNK - 3, CHUNK - 3 + L, SITE);
+        chr1.replace(2 * CHUNK - 5, 2 * CHUNK - 5 + L, reverse);
+        try(Writer w = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            w.write("> chr1 planted\n");
+            for(int k = 0; k < chr1.length(); k += 60) { // wrapped lines
+                w.append(chr1, k, Math.min(k + 60, chr1.length()));
+                w.write('\n');
+            }
+            w.write(">chr2\n" + SITE + "ttNNac" + reverse + "\n");
+        }
+        return file;
+    }
+
+    /**
+     * Every hit the scan wrote, by name, start and strand
+     */
+    private static Map<String, Double> hits(String lines) {
+        Map<String, Double> hits = new TreeMap<>();
+        for(String line : lines.split("\n")) {
+            if(!line.isEmpty()) {
+                String[] f = line.split("\t");
+                hits.put(f[0] + " " + f[1] + " " + f[2], Double.parseDouble(f[3]));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Scores every window of the sequences by hand: a letter c read off the
+     * forward strand at j of a reverse site is the complement letter in
+     * column l - 1 - j, against the background of c
+     */
+    private static Map<String, Double> bruteForce(SequenceStore S, double[][] columns, double threshold) {
+        Map<String, Double> hits = new TreeMap<>();
+        for(int i = 0; i < S.size(); i++) {
+            for(int z = 0; z + L <= S.length(i); z++) {
+                if(!S.clean(i, z, L)) {
+                    continue;
+                }
+                double forward = 0;
+                double reverse = 0;
+                for(int j = 0; j < L; j++) {
+                    int c = S.code(i, z + j);
+                    forward += columns[j][c];
+                    reverse += columns[L - 1 - j][c ^ 1] + Math.log(BACKGROUND[c ^ 1] / BACKGROUND[c]);
+                }
+                if(forward >= threshold) {
+                    hits.put(S.id(i) + " " + (z + 1) + " +", forward);
+                }
+                if(reverse >= threshold) {
+                    hits.put(S.id(i) + " " + (z + 1) + " -", reverse);
+                }
+            }
+        }
+        return hits;
+    }
+
+    @Test
+    public void scanFindsWhatBruteForceFinds() throws IOException {
+        Path file = genome(tmp.getRoot().toPath().resolve("genome.fa"));
+        double[][] columns = columns();
+        double threshold = 8;
+        StringWriter lines = new StringWriter();
+        long written;
+        try(PrintWriter out = new PrintWriter(lines)) {
+            written = new PwmScanner(new PwmScanner.Pwm(columns, BACKGROUND), threshold, 0).scan(file, out);
+        }
+        Map<String, Double> found = hits(lines.toString());
+        Map<String, Double> expected = bruteForce(FastaReader.read(file), columns, threshold);
+        assertEquals(expected.keySet(), found.keySet());
+        assertEquals(expected.size(), written);
+        for(Map.Entry<String, Double> hit : expected.entrySet()) {
+            assertEquals(hit.getKey(), hit.getValue(), found.get(hit.getKey()), 1e-4);
+        }
+        assertTrue(found.containsKey("chr1 " + (CHUNK - 2) + " +"));
+        assertTrue(found.containsKey("chr1 " + (2 * CHUNK - 4) + " -"));
+        assertTrue(found.containsKey("chr2 1 +"));
+        assertTrue(found.containsKey("chr2 15 -"));
+    }
+
+    @Test
+    public void topKeepsTheBestHits() throws IOException {
+        Path file = genome(tmp.getRoot().toPath().resolve("genome.fa"));
+        double[][] columns = columns();
+        StringWriter lines = new StringWriter();
+        try(PrintWriter out = new PrintWriter(lines)) {
+            new PwmScanner(new PwmScanner.Pwm(columns, BACKGROUND), 6, 5).scan(file, out);
+        }
+        List<Double> scores = new ArrayList<>(bruteForce(FastaReader.read(file), columns, 6).values());
+        scores.sort(null);
+        String[] top = lines.toString().split("\n");
+        assertEquals(5, top.length);
+        for(int k = 0; k < 5; k++) {
+            assertEquals(scores.get(scores.size() - 1 - k), Double.parseDouble(top[k].split("\t")[3]), 1e-4);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Checks that the SIMD backend scores every window as the
+ * scalar one does, on one strand and on both, for sequences shorter than a
+ * motif, around multiples of the lane count and holding N.  Runs only where
+ * the JVM has the incubator vector module, as the build's test target does.
+ */
+package gibbs_sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScoreKernelTest {
+
+    private static final int L = 9;
+
+    private final Rng rng = new Rng(13);
+    private byte[] codes;
+    private double[] pwm;
+    private double[] rc;
+
+    @Before
+    public void setup() {
+        assumeTrue("The vector backend is not available", ScoreKernel.backend().equals("vector"));
+        codes = new byte[4000];
+        for(int k = 0; k < codes.length; k++) {
+            codes[k] = rng.nextInt(40) == 0 ? SequenceStore.N : (byte)rng.nextInt(4);
+        }
+        pwm = matrix();
+        rc = matrix();
+    }
+
+    /**
+     * @return a random matrix in which N never matches
+     */
+    private double[] matrix() {
+        double[] m = new double[L * ScoreKernel.STRIDE];
+        for(int j = 0; j < L; j++) {
+            for(int b = 0; b < 4; b++) {
+                m[j * ScoreKernel.STRIDE + b] = 4 * rng.nextDouble() - 2;
+            }
+            m[j * ScoreKernel.STRIDE + SequenceStore.N] = Double.NEGATIVE_INFINITY;
+        }
+        return m;
+    }
+
+    @Test
+    public void oneStrandAgrees() {
+        ScoreKernel scalar = ScoreKernel.scalar();
+        ScoreKernel vector = ScoreKernel.create();
+        double[] expected = new double[codes.length];
+        double[] actual = new double[codes.length];
+        for(int length = 0; length < 80; length++) {
+            int from = rng.nextInt(codes.length - length);
+            int n = scalar.scoreWindows(codes, from, length, pwm, L, expected);
+            assertEquals(n, vector.scoreWindows(codes, from, length, pwm, L, actual));
+            for(int i = 0; i < n; i++) {
+                assertEquals("length " + length + " window " + i, expected[i], actual[i], 1e-12);
+            }
+        }
+        int n = scalar.scoreWindows(codes, 3, codes.length - 3, pwm, L, expected);
+        vector.scoreWindows(codes, 3, codes.length - 3, pwm, L, actual);
+        for(int i = 0; i < n; i++) {
+            assertEquals(expected[i], actual[i], 1e-12);
+        }
+    }
+
+    @Test
+    public void bothStrandsAgree() {
+        ScoreKernel scalar = ScoreKernel.scalar();
+        ScoreKernel vector = ScoreKernel.create();
+        double[] expected = new double[2 * codes.length];
+        double[] actual = new double[2 * codes.length];
+        for(int length = 0; length < 80; length++) {
+            int from = rng.nextInt(codes.length - length);
+            int n = scalar.scoreBothStrands(codes, from, length, pwm, rc, L, expected);
+            assertEquals(n, vector.scoreBothStrands(codes, from, length, pwm, rc, L, actual));
+            for(int i = 0; i < n; i++) {
+                assertEquals("length " + length + " score " + i, expected[i], actual[i], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void scalarMatchesOneWindowAtATime() {
+        double[] out = new double[codes.length];
+        int n = ScoreKernel.scalar().scoreWindows(codes, 0, 100, pwm, L, out);
+        assertEquals(100 - L + 1, n);
+        for(int i = 0; i < n; i++) {
+            double sum = 0;
+            for(int j = 0; j < L; j++) {
+                sum += pwm[j * ScoreKernel.STRIDE + codes[i + j]];
+            }
+            assertEquals(sum, out[i], 0);
+        }
+    }
+}
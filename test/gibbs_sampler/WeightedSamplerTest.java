@@ -0,0 +1,82 @@
+/**
+ * Authors: Jesse Gerringer, Gleb Sklyr
+ * Mails: gleb.sklyr@marquette.edu, Jesse.Gerringer@marquette.edu
+ * Last edited: 10/17/2026 (mm/dd/yyyy)
+ * Description: Checks that the sampler draws every index with exactly the
+ * probability of its weight: uniform numbers spread evenly over [0, 1) must
+ * land on each index in proportion to its weight, raised to the power given.
+ */
+package gibbs_sampler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class WeightedSamplerTest {
+
+    private static final int DRAWS = 1024;
+
+    /**
+     * Draws once from the middle of each of DRAWS equal slices of [0, 1),
+     * so every index is drawn its probability times DRAWS times
+     * @return how often each index was drawn
+     */
+    private static int[] spread(WeightedSampler sampler, int n) {
+        int[] drawn = new int[n];
+        for(int i = 0; i < DRAWS; i++) {
+            drawn[sampler.draw((i + 0.5) / DRAWS)]++;
+        }
+        return drawn;
+    }
+
+    @Test
+    public void drawsInProportionToWeight() {
+        WeightedSampler sampler = new WeightedSampler();
+        sampler.load(new double[] {Math.log(1), Math.log(3), Math.log(4)}, 3);
+        assertArrayEquals(new int[] {128, 384, 512}, spread(sampler, 3));
+        assertEquals(0, sampler.draw(0));
+        assertEquals(2, sampler.draw(Math.nextDown(1.0)));
+    }
+
+    @Test
+    public void impossibleIndexIsNeverDrawn() {
+        WeightedSampler sampler = new WeightedSampler();
+        double[] weights = {Double.NEGATIVE_INFINITY, 0, Double.NEGATIVE_INFINITY, Math.log(3)};
+        sampler.load(weights, 4);
+        assertArrayEquals(new int[] {0, 256, 0, 768}, spread(sampler, 4));
+    }
+
+    @Test
+    public void powerFlattensWeights() {
+        WeightedSampler sampler = new WeightedSampler();
+        sampler.load(new double[] {0, Math.log(9)}, 2, 0.5); // temperature 2: 1 and 3
+        assertArrayEquals(new int[] {256, 768}, spread(sampler, 2));
+    }
+
+    @Test
+    public void hugeLogWeightsDoNotOverflow() {
+        WeightedSampler sampler = new WeightedSampler();
+        sampler.load(new double[] {5000, 5000 + Math.log(3)}, 2);
+        assertArrayEquals(new int[] {256, 768}, spread(sampler, 2));
+    }
+
+    @Test
+    public void nothingPossibleFallsBackToUniform() {
+        WeightedSampler sampler = new WeightedSampler();
+        double[] weights = new double[4];
+        Arrays.fill(weights, Double.NEGATIVE_INFINITY);
+        sampler.load(weights, 4);
+        assertArrayEquals(new int[] {256, 256, 256, 256}, spread(sampler, 4));
+    }
+
+    @Test
+    public void reloadingUsesOnlyTheNewWeights() {
+        WeightedSampler sampler = new WeightedSampler();
+        double[] many = new double[40];
+        sampler.load(many, 40);
+        sampler.load(new double[] {Math.log(3), 0}, 2);
+        assertArrayEquals(new int[] {768, 256}, spread(sampler, 2));
+    }
+}